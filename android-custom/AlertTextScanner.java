@@ -0,0 +1,783 @@
+package com.covault.app;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * One pass over a bank alert that yields the amount, the vendor and the
+ * emoji-stripped text together.
+ *
+ * NotificationListener used to get these from a cascade of regular
+ * expressions: stripEmoji ran two replaceAll passes, then extractAmount tried
+ * five AMOUNT_PATTERNS and extractVendor five VENDOR_PATTERNS, each with its
+ * own Matcher and each restarting from the top of the text. That runs on the
+ * listener's main thread in front of every capture, so it is paid on every
+ * alert from every monitored app, purchase or not.
+ *
+ * The regexes are still the specification. This class is their hand-compiled
+ * form, and every branch below is written to reproduce what the regex engine
+ * does on the same input, down to which of the five patterns wins and what
+ * happens when the winner's capture is unusable:
+ *
+ *   - Amounts: the leftmost match of each pattern, tried in pattern order. A
+ *     capture that is nothing but commas fails to parse, and the cascade then
+ *     moves to the NEXT pattern, never to a later match of the same one.
+ *
+ *   - Vendors: run on the emoji-stripped text, where no two whitespace
+ *     characters are ever adjacent (stripEmoji collapses every run of two or
+ *     more). That is what lets each `\s+` below be treated as a single
+ *     character instead of a backtracking point. Same rule as amounts for a
+ *     candidate that trims to nothing or is a pronoun: that pattern is done.
+ *
+ * Android's java.util.regex is ICU, not the JDK's engine, and the two
+ * disagree on non-ASCII input: ICU's `\s` includes U+00A0, its `\d` is every
+ * Unicode decimal digit, and its case-insensitive matching folds "ſ" to "s".
+ * Rather than pick one engine's answer, scan() only vouches for text made of
+ * characters on which both agree — ASCII, Latin-1 letters and punctuation,
+ * typographic quotes and dashes, currency signs, and the emoji ranges
+ * stripEmoji removes. For anything else, or a spending verb butting against a
+ * non-ASCII letter (where `\b` itself differs), it returns false and the
+ * caller runs the regexes. That is rare enough to cost nothing and keeps the
+ * two paths from ever disagreeing.
+ *
+ * Not thread-safe: the buffers are reused across calls. NotificationListener
+ * has one, NotificationListener.SCANNER, and only the capture thread uses it.
+ * See CaptureExecutor.
+ */
+final class AlertTextScanner {
+
+    /** Vendor candidates must be at least this long, and shorter than MAX. */
+    private static final int MIN_VENDOR = 2;
+    private static final int MAX_VENDOR = 60;
+
+    /** Non-vendor words bucketed by length, so a lookup allocates nothing. */
+    private final String[][] nonVendorByLength;
+
+    private char[] clean = new char[256];
+    /** Where in the raw text each stripped character came from. */
+    private int[] rawIndex = new int[256];
+    private int cleanLength;
+    private char[] scratch = new char[MAX_VENDOR];
+
+    private boolean hasAmount;
+    private double amount;
+    private String vendor;
+    private boolean uncertain;
+
+    // Where the answers came from: the winning amount capture in the raw
+    // text, and the vendor candidate in the stripped text. -1 when absent.
+    private int amountFrom;
+    private int amountTo;
+    private int vendorFrom;
+    private int vendorTo;
+
+    // Leftmost capture span per amount pattern, -1 when it had no match.
+    private final int[] amountStart = new int[5];
+    private final int[] amountEnd = new int[5];
+
+    AlertTextScanner(Set<String> nonVendorWords) {
+        int longest = 0;
+        for (String w : nonVendorWords) longest = Math.max(longest, w.length());
+        int[] counts = new int[longest + 1];
+        for (String w : nonVendorWords) counts[w.length()]++;
+        nonVendorByLength = new String[longest + 1][];
+        for (int len = 0; len <= longest; len++) nonVendorByLength[len] = new String[counts[len]];
+        for (String w : nonVendorWords) {
+            int len = w.length();
+            nonVendorByLength[len][--counts[len]] = w.toLowerCase(Locale.US);
+        }
+    }
+
+    boolean hasAmount() {
+        return hasAmount;
+    }
+
+    double amount() {
+        return amount;
+    }
+
+    /** Null when no pattern produced a usable name, exactly as extractVendor. */
+    String vendor() {
+        return vendor;
+    }
+
+    /** The emoji-stripped text, valid until the next scan(). */
+    char[] cleanedChars() {
+        return clean;
+    }
+
+    int cleanedLength() {
+        return cleanLength;
+    }
+
+    /** Raw-text span of the amount that was parsed, or -1. */
+    int amountStart() {
+        return amountFrom;
+    }
+
+    int amountEnd() {
+        return amountTo;
+    }
+
+    /**
+     * Raw-text index of each digit in vendor(), in order. Everything else in
+     * the vendor name is fixed by the text around it; see ExtractionTemplates.
+     */
+    int[] vendorDigitSources() {
+        if (vendor == null) return new int[0];
+        int count = 0;
+        for (int i = vendorFrom; i < vendorTo; i++) if (isAsciiDigit(clean[i])) count++;
+        int[] sources = new int[count];
+        int k = 0;
+        for (int i = vendorFrom; i < vendorTo; i++) if (isAsciiDigit(clean[i])) sources[k++] = rawIndex[i];
+        return sources;
+    }
+
+    /**
+     * Scan an alert. Returns false when the text contains something the two
+     * regex engines read differently; the results are then meaningless and
+     * the caller must fall back to the patterns.
+     */
+    boolean scan(String text) {
+        hasAmount = false;
+        amount = 0;
+        vendor = null;
+        uncertain = false;
+        cleanLength = 0;
+        amountFrom = amountTo = vendorFrom = vendorTo = -1;
+        if (text == null) return false;
+
+        if (!scanRaw(text)) return false;
+        resolveAmount(text);
+        trimClean();
+        vendor = findVendor();
+        return !uncertain;
+    }
+
+    // ── Raw pass: amounts and the stripped copy ──────────────────────────
+
+    /**
+     * Walks the text once, by code point. Each position is offered to every
+     * amount pattern still looking for its leftmost match, and each code point
+     * is copied into the stripped buffer — emoji as a space, whitespace runs
+     * of two or more as one space, as stripEmoji does.
+     */
+    private boolean scanRaw(String text) {
+        int len = text.length();
+        ensureClean(len);
+        for (int k = 0; k < 5; k++) amountStart[k] = -1;
+        int unresolved = 5;
+
+        int wsRun = 0;
+        char firstWs = ' ';
+        int firstWsAt = 0;
+        int out = 0;
+
+        int i = 0;
+        while (i < len) {
+            char c = text.charAt(i);
+            int width = 1;
+            char mapped;
+            if (Character.isHighSurrogate(c)) {
+                if (i + 1 >= len || !Character.isLowSurrogate(text.charAt(i + 1))) return false;
+                int cp = Character.toCodePoint(c, text.charAt(i + 1));
+                if (!isSupplementaryEmoji(cp)) return false;
+                mapped = ' ';
+                width = 2;
+            } else if (isBmpEmoji(c)) {
+                mapped = ' ';
+            } else if (isAgreed(c)) {
+                mapped = c;
+            } else {
+                return false;
+            }
+
+            if (unresolved > 0 && width == 1) unresolved -= tryAmountsAt(text, i);
+
+            if (isWs(mapped)) {
+                if (wsRun++ == 0) {
+                    firstWs = mapped;
+                    firstWsAt = i;
+                }
+            } else {
+                if (wsRun > 0) {
+                    rawIndex[out] = firstWsAt;
+                    clean[out++] = wsRun == 1 ? firstWs : ' ';
+                }
+                wsRun = 0;
+                rawIndex[out] = i;
+                clean[out++] = mapped;
+            }
+            i += width;
+        }
+        if (wsRun > 0) {
+            rawIndex[out] = firstWsAt;
+            clean[out++] = wsRun == 1 ? firstWs : ' ';
+        }
+        cleanLength = out;
+        return true;
+    }
+
+    /** Returns how many patterns found their leftmost match at i. */
+    private int tryAmountsAt(String t, int i) {
+        int found = 0;
+        char c = t.charAt(i);
+
+        // \$([\d,]+(?:\.\d{1,2})?)
+        if (amountStart[0] < 0 && c == '$' && isDigitOrComma(t, i + 1)) {
+            found += record(0, t, i + 1);
+        }
+
+        // (?:USD|CAD)\s*([\d,]+(?:\.\d{1,2})?)
+        if (amountStart[1] < 0 && (t.startsWith("USD", i) || t.startsWith("CAD", i))) {
+            int p = skipWs(t, i + 3);
+            if (isDigitOrComma(t, p)) found += record(1, t, p);
+        }
+
+        // ([\d,]+(?:\.\d{1,2})?)\s*(?:USD|CAD|dollars?)
+        //
+        // Only the first character of a [\d,] run can start a match: from
+        // anywhere inside the run the greedy capture ends in the same place
+        // and faces the same suffix.
+        if (amountStart[2] < 0 && isDigitOrComma(t, i) && !isDigitOrComma(t, i - 1)) {
+            int runEnd = digitRunEnd(t, i);
+            // The decimal part is greedy: two digits, then one, then none.
+            int decimals = 0;
+            if (charAt(t, runEnd) == '.' && isDigit(t, runEnd + 1)) {
+                decimals = isDigit(t, runEnd + 2) ? 2 : 1;
+            }
+            for (int d = decimals; d >= 0; d--) {
+                int end = d == 0 ? runEnd : runEnd + 1 + d;
+                int q = skipWs(t, end);
+                if (t.startsWith("USD", q) || t.startsWith("CAD", q) || t.startsWith("dollar", q)) {
+                    amountStart[2] = i;
+                    amountEnd[2] = end;
+                    found++;
+                    break;
+                }
+            }
+        }
+
+        // (?:charged|spent|paid|purchase|transaction|withdrawal|debit)
+        //     \s*(?:of)?\s*\$?([\d,]+(?:\.\d{1,2})?)
+        if (amountStart[3] < 0) {
+            int k = purchaseWordEnd(t, i);
+            if (k >= 0) {
+                int p = skipWs(t, k);
+                if (matchesIgnoreCase(t, p, "of")) p = skipWs(t, p + 2);
+                found += recordAfterOptionalDollar(3, t, p);
+            }
+        }
+
+        // (?:amount|total)\s*:?\s*\$?([\d,]+(?:\.\d{1,2})?)
+        if (amountStart[4] < 0 && (matchesIgnoreCase(t, i, "amount") || matchesIgnoreCase(t, i, "total"))) {
+            int p = skipWs(t, i + (lower(c) == 'a' ? 6 : 5));
+            if (charAt(t, p) == ':') p = skipWs(t, p + 1);
+            found += recordAfterOptionalDollar(4, t, p);
+        }
+        return found;
+    }
+
+    private int recordAfterOptionalDollar(int pattern, String t, int p) {
+        if (charAt(t, p) == '$' && isDigitOrComma(t, p + 1)) return record(pattern, t, p + 1);
+        if (isDigitOrComma(t, p)) return record(pattern, t, p);
+        return 0;
+    }
+
+    /** Records `[\d,]+(?:\.\d{1,2})?` starting at start, which is known to match. */
+    private int record(int pattern, String t, int start) {
+        int end = digitRunEnd(t, start);
+        if (charAt(t, end) == '.' && isDigit(t, end + 1)) {
+            end += isDigit(t, end + 2) ? 3 : 2;
+        }
+        amountStart[pattern] = start;
+        amountEnd[pattern] = end;
+        return 1;
+    }
+
+    private static int purchaseWordEnd(String t, int i) {
+        switch (lower(charAt(t, i))) {
+            case 'c': return matchesIgnoreCase(t, i, "charged") ? i + 7 : -1;
+            case 's': return matchesIgnoreCase(t, i, "spent") ? i + 5 : -1;
+            case 'p':
+                if (matchesIgnoreCase(t, i, "paid")) return i + 4;
+                return matchesIgnoreCase(t, i, "purchase") ? i + 8 : -1;
+            case 't': return matchesIgnoreCase(t, i, "transaction") ? i + 11 : -1;
+            case 'w': return matchesIgnoreCase(t, i, "withdrawal") ? i + 10 : -1;
+            case 'd': return matchesIgnoreCase(t, i, "debit") ? i + 5 : -1;
+            default: return -1;
+        }
+    }
+
+    /**
+     * First pattern, in order, whose leftmost capture parses. Mirrors
+     * extractAmount, including `.replace(",", "")` leaving an empty string for
+     * an all-comma capture, which Double.parseDouble rejects.
+     */
+    private void resolveAmount(String t) {
+        for (int k = 0; k < 5; k++) {
+            int start = amountStart[k];
+            if (start < 0) continue;
+            double value = parseAmount(t, start, amountEnd[k]);
+            if (Double.isNaN(value)) continue;
+            amount = value;
+            hasAmount = true;
+            amountFrom = start;
+            amountTo = amountEnd[k];
+            return;
+        }
+    }
+
+    /**
+     * Double.parseDouble(t.substring(start, end).replace(",", "")) for a
+     * span matched by `[\d,]+(?:\.\d{1,2})?`, without the two strings. NaN
+     * where that would throw: the span is nothing but commas.
+     */
+    static double parseAmount(CharSequence t, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean inFraction = false;
+        boolean overflow = false;
+        for (int i = start; i < end; i++) {
+            char c = t.charAt(i);
+            if (c == ',') continue;
+            if (c == '.') {
+                inFraction = true;
+                continue;
+            }
+            if (inFraction) scale++;
+            digits++;
+            if (mantissa == 0 && c == '0') continue;
+            if (mantissa >= 100_000_000_000_000L) overflow = true;
+            else mantissa = mantissa * 10 + (c - '0');
+        }
+        if (digits == 0) return Double.NaN;
+
+        if (overflow) {
+            // Past 2^53 the shortcut below is no longer exact. Banks do not
+            // send sixteen-digit amounts, but the answer must still be the
+            // one parseDouble gives.
+            return Double.parseDouble(t.subSequence(start, end).toString().replace(",", ""));
+        }
+        if (scale == 0) return (double) mantissa;
+        // Both operands are exact, and IEEE division rounds the exact quotient
+        // once — the same correctly rounded result Double.parseDouble produces
+        // for the decimal string.
+        return mantissa / (scale == 1 ? 10.0 : 100.0);
+    }
+
+    // ── Vendor pass over the stripped text ───────────────────────────────
+
+    private void trimClean() {
+        int start = 0;
+        int end = cleanLength;
+        while (start < end && clean[start] <= ' ') start++;
+        while (end > start && clean[end - 1] <= ' ') end--;
+        if (start > 0) {
+            System.arraycopy(clean, start, clean, 0, end - start);
+            System.arraycopy(rawIndex, start, rawIndex, 0, end - start);
+        }
+        cleanLength = end - start;
+    }
+
+    /** VENDOR_PATTERNS in order; the first valid candidate wins. */
+    private String findVendor() {
+        String v;
+        if ((v = leadingMerchant()) != null) return v;
+        if ((v = merchantAfterPreposition()) != null) return v;
+        if ((v = merchantAfterPurchase()) != null) return v;
+        if ((v = merchantBeforeAmount()) != null) return v;
+        return labelledMerchant();
+    }
+
+    /**
+     * ^([A-Za-z0-9&'./# -]{2,60}?)\s*[-–—]?\s*(?:[Yy]ou\s+)?
+     *     (?:spent|charged|paid|purchased)\b
+     *
+     * The capture is lazy, so the answer is the shortest prefix the rest of
+     * the pattern can follow.
+     */
+    private String leadingMerchant() {
+        int limit = Math.min(MAX_VENDOR, cleanLength);
+        for (int len = 1; len <= limit; len++) {
+            if (!isLeadChar(clean[len - 1])) return null;
+            if (len >= 2 && spendingVerbFollows(len)) return candidate(0, len);
+        }
+        return null;
+    }
+
+    private boolean spendingVerbFollows(int p) {
+        for (int a = wsRun(p); a >= 0; a--) {
+            int q = p + a;
+            for (int b = isDash(at(q)) ? 1 : 0; b >= 0; b--) {
+                int r = q + b;
+                for (int c = wsRun(r); c >= 0; c--) {
+                    int s = r + c;
+                    if (matchesIgnoreCase(s, "you") && isWs(at(s + 3))) {
+                        if (verbWithBoundary(skipWs(s + 3))) return true;
+                    }
+                    if (verbWithBoundary(s)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean verbWithBoundary(int s) {
+        int e = spendingVerbEnd(s);
+        if (e < 0) return false;
+        if (e >= cleanLength) return true;
+        char next = clean[e];
+        // The engines disagree on whether a non-ASCII letter is a word
+        // character; let the regex decide.
+        if (next >= 0x80) {
+            uncertain = true;
+            return false;
+        }
+        return !(isAsciiLetter(next) || isAsciiDigit(next) || next == '_');
+    }
+
+    /**
+     * (?:at|from|to|@)\s+([A-Za-z0-9\s&'.-]+?)\s+(?:for|on|\$|USD|CAD|charged)
+     */
+    private String merchantAfterPreposition() {
+        for (int i = 0; i < cleanLength; i++) {
+            int k;
+            char c = lower(clean[i]);
+            if (c == 'a' && matchesIgnoreCase(i, "at")) k = i + 2;
+            else if (c == 'f' && matchesIgnoreCase(i, "from")) k = i + 4;
+            else if (c == 't' && matchesIgnoreCase(i, "to")) k = i + 2;
+            else if (c == '@') k = i + 1;
+            else continue;
+
+            if (!isWs(at(k))) continue;
+            int start = skipWs(k);
+            // Lazy: the first end the terminator can follow.
+            for (int end = start + 1; end <= cleanLength && isVendorChar(clean[end - 1]); end++) {
+                if (isWs(at(end)) && terminatorAt(skipWs(end))) return candidate(start, end);
+            }
+        }
+        return null;
+    }
+
+    private boolean terminatorAt(int p) {
+        switch (lower(at(p))) {
+            case 'f': return matchesIgnoreCase(p, "for");
+            case 'o': return matchesIgnoreCase(p, "on");
+            case '$': return true;
+            case 'u': return matchesIgnoreCase(p, "usd");
+            case 'c': return matchesIgnoreCase(p, "cad") || matchesIgnoreCase(p, "charged");
+            default: return false;
+        }
+    }
+
+    /** (?:purchase|transaction|payment)\s+(?:at|from)\s+([A-Za-z0-9\s&'.-]+) */
+    private String merchantAfterPurchase() {
+        for (int i = 0; i < cleanLength; i++) {
+            int k;
+            char c = lower(clean[i]);
+            if (c == 'p' && matchesIgnoreCase(i, "purchase")) k = i + 8;
+            else if (c == 't' && matchesIgnoreCase(i, "transaction")) k = i + 11;
+            else if (c == 'p' && matchesIgnoreCase(i, "payment")) k = i + 7;
+            else continue;
+
+            if (!isWs(at(k))) continue;
+            int p = skipWs(k);
+            if (matchesIgnoreCase(p, "at")) p += 2;
+            else if (matchesIgnoreCase(p, "from")) p += 4;
+            else continue;
+
+            if (!isWs(at(p))) continue;
+            int start = skipWs(p);
+            if (!isVendorChar(at(start))) continue;
+            return candidate(start, vendorRunEnd(start));
+        }
+        return null;
+    }
+
+    /**
+     * ([A-Z][A-Za-z0-9\s&'.-]+?)\s+(?:(?:you\s+)?(?:spent|charged|paid|purchased)\s+)?
+     *     \$[\d,]+\.\d{2}
+     *
+     * Within a run of vendor characters only the first letter can be the
+     * leftmost start: any later letter has a subset of the same end points
+     * available to it.
+     */
+    private String merchantBeforeAmount() {
+        int i = 0;
+        while (i < cleanLength) {
+            if (!isVendorChar(clean[i])) {
+                i++;
+                continue;
+            }
+            int runEnd = vendorRunEnd(i);
+            int first = i;
+            while (first < runEnd && !isAsciiLetter(clean[first])) first++;
+            for (int end = first + 2; end < runEnd; end++) {
+                if (isWs(clean[end]) && amountTailFollows(skipWs(end))) return candidate(first, end);
+            }
+            i = runEnd;
+        }
+        return null;
+    }
+
+    private boolean amountTailFollows(int t) {
+        if (matchesIgnoreCase(t, "you") && isWs(at(t + 3))) {
+            int e = spendingVerbEnd(skipWs(t + 3));
+            if (e >= 0 && isWs(at(e)) && dollarAmountAt(skipWs(e))) return true;
+        }
+        int e = spendingVerbEnd(t);
+        if (e >= 0 && isWs(at(e)) && dollarAmountAt(skipWs(e))) return true;
+        return dollarAmountAt(t);
+    }
+
+    /** \$[\d,]+\.\d{2} */
+    private boolean dollarAmountAt(int p) {
+        if (at(p) != '$') return false;
+        int q = p + 1;
+        while (isDigitOrComma(at(q))) q++;
+        return q > p + 1 && at(q) == '.' && isAsciiDigit(at(q + 1)) && isAsciiDigit(at(q + 2));
+    }
+
+    /** (?:merchant|vendor|store)\s*:?\s*([A-Za-z0-9\s&'.-]+) */
+    private String labelledMerchant() {
+        for (int i = 0; i < cleanLength; i++) {
+            int k;
+            char c = lower(clean[i]);
+            if (c == 'm' && matchesIgnoreCase(i, "merchant")) k = i + 8;
+            else if (c == 'v' && matchesIgnoreCase(i, "vendor")) k = i + 6;
+            else if (c == 's' && matchesIgnoreCase(i, "store")) k = i + 5;
+            else continue;
+
+            // Greedy quantifiers backtrack from longest to shortest, and the
+            // capture class includes whitespace, so a shorter \s* can hand a
+            // space to the capture. Walk the choices in the engine's order.
+            for (int a = wsRun(k); a >= 0; a--) {
+                int q = k + a;
+                for (int b = at(q) == ':' ? 1 : 0; b >= 0; b--) {
+                    int r = q + b;
+                    for (int d = wsRun(r); d >= 0; d--) {
+                        int start = r + d;
+                        if (isVendorChar(at(start))) return candidate(start, vendorRunEnd(start));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private int spendingVerbEnd(int s) {
+        switch (lower(at(s))) {
+            case 's': return matchesIgnoreCase(s, "spent") ? s + 5 : -1;
+            case 'c': return matchesIgnoreCase(s, "charged") ? s + 7 : -1;
+            case 'p':
+                if (matchesIgnoreCase(s, "paid")) return s + 4;
+                return matchesIgnoreCase(s, "purchased") ? s + 9 : -1;
+            default: return -1;
+        }
+    }
+
+    /**
+     * The capture a vendor pattern matched, cleaned and checked the way
+     * extractVendor does: trimmed, whitespace runs collapsed, then rejected if
+     * it is too short, too long or made only of non-vendor words. Null means
+     * this pattern is done and the next one gets its turn.
+     */
+    private String candidate(int start, int end) {
+        while (start < end && clean[start] <= ' ') start++;
+        while (end > start && clean[end - 1] <= ' ') end--;
+
+        int len = 0;
+        boolean inWs = false;
+        for (int i = start; i < end; i++) {
+            if (isWs(clean[i])) {
+                inWs = true;
+                continue;
+            }
+            if (inWs) {
+                if (len >= MAX_VENDOR) return null;
+                scratch[len++] = ' ';
+                inWs = false;
+            }
+            if (len >= MAX_VENDOR) return null;
+            scratch[len++] = clean[i];
+        }
+        if (len < MIN_VENDOR || len >= MAX_VENDOR || isNonVendor(len)) return null;
+        vendorFrom = start;
+        vendorTo = end;
+        return new String(scratch, 0, len);
+    }
+
+    /** isNonVendor over scratch[0, len), without the split. */
+    private boolean isNonVendor(int len) {
+        boolean sawToken = false;
+        int i = 0;
+        while (i < len) {
+            if (!isTokenChar(lower(scratch[i]))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < len && isTokenChar(lower(scratch[i]))) i++;
+            sawToken = true;
+            if (!isNonVendorWord(start, i - start)) return false;
+        }
+        return sawToken;
+    }
+
+    private boolean isNonVendorWord(int start, int len) {
+        if (len >= nonVendorByLength.length) return false;
+        for (String w : nonVendorByLength[len]) {
+            boolean same = true;
+            for (int j = 0; j < len && same; j++) same = lower(scratch[start + j]) == w.charAt(j);
+            if (same) return true;
+        }
+        return false;
+    }
+
+    // ── Character classes ────────────────────────────────────────────────
+
+    /**
+     * Characters both regex engines classify identically under every class
+     * the patterns use. See the class comment.
+     */
+    private static boolean isAgreed(char c) {
+        if (c < 0x80) return (c >= 0x20 && c < 0x7F) || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+        return (c >= 0xA1 && c <= 0xFF)
+            || (c >= 0x2010 && c <= 0x2027)
+            || (c >= 0x2030 && c <= 0x205E)
+            || (c >= 0x20A0 && c <= 0x20CF);
+    }
+
+    /** The BMP half of EMOJI_PATTERN. */
+    private static boolean isBmpEmoji(char c) {
+        return (c >= 0x2600 && c <= 0x27BF)
+            || (c >= 0x2B00 && c <= 0x2BFF)
+            || (c >= 0xFE00 && c <= 0xFE0F)
+            || c == 0x200D;
+    }
+
+    /**
+     * The supplementary half, minus U+1FBF0..U+1FBF9: segmented digits,
+     * which ICU's `\d` matches in the raw text before they are stripped.
+     */
+    private static boolean isSupplementaryEmoji(int cp) {
+        return cp >= 0x1F000 && cp <= 0x1FFFF && !(cp >= 0x1FBF0 && cp <= 0x1FBF9);
+    }
+
+    /** `\s` on the agreed characters. */
+    private static boolean isWs(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigitOrComma(char c) {
+        return isAsciiDigit(c) || c == ',';
+    }
+
+    private static boolean isDash(char c) {
+        return c == '-' || c == '–' || c == '—';
+    }
+
+    /** [A-Za-z0-9&'./# -] */
+    private static boolean isLeadChar(char c) {
+        return isAsciiLetter(c) || isAsciiDigit(c)
+            || c == '&' || c == '\'' || c == '.' || c == '/' || c == '#' || c == ' ' || c == '-';
+    }
+
+    /** [A-Za-z0-9\s&'.-] */
+    private static boolean isVendorChar(char c) {
+        return isAsciiLetter(c) || isAsciiDigit(c) || isWs(c)
+            || c == '&' || c == '\'' || c == '.' || c == '-';
+    }
+
+    /** [a-z0-9'] — what isNonVendor's split keeps. */
+    private static boolean isTokenChar(char c) {
+        return (c >= 'a' && c <= 'z') || isAsciiDigit(c) || c == '\'';
+    }
+
+    /** ASCII-only, matching CASE_INSENSITIVE without UNICODE_CASE. */
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+
+    // ── Raw-text helpers ─────────────────────────────────────────────────
+
+    private static char charAt(String t, int i) {
+        return i >= 0 && i < t.length() ? t.charAt(i) : 0;
+    }
+
+    private static boolean isDigit(String t, int i) {
+        return isAsciiDigit(charAt(t, i));
+    }
+
+    private static boolean isDigitOrComma(String t, int i) {
+        return isDigitOrComma(charAt(t, i));
+    }
+
+    private static int digitRunEnd(String t, int i) {
+        while (isDigitOrComma(t, i)) i++;
+        return i;
+    }
+
+    private static int skipWs(String t, int i) {
+        while (isWs(charAt(t, i))) i++;
+        return i;
+    }
+
+    /** `lowerWord` must be lower-case ASCII. */
+    private static boolean matchesIgnoreCase(String t, int i, String lowerWord) {
+        int n = lowerWord.length();
+        if (i < 0 || i + n > t.length()) return false;
+        for (int j = 0; j < n; j++) {
+            if (lower(t.charAt(i + j)) != lowerWord.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    // ── Stripped-text helpers ────────────────────────────────────────────
+
+    private char at(int i) {
+        return i >= 0 && i < cleanLength ? clean[i] : 0;
+    }
+
+    private int wsRun(int i) {
+        int n = 0;
+        while (isWs(at(i + n))) n++;
+        return n;
+    }
+
+    private int skipWs(int i) {
+        while (isWs(at(i))) i++;
+        return i;
+    }
+
+    private int vendorRunEnd(int i) {
+        while (i < cleanLength && isVendorChar(clean[i])) i++;
+        return i;
+    }
+
+    private boolean matchesIgnoreCase(int i, String lowerWord) {
+        int n = lowerWord.length();
+        if (i < 0 || i + n > cleanLength) return false;
+        for (int j = 0; j < n; j++) {
+            if (lower(clean[i + j]) != lowerWord.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private void ensureClean(int len) {
+        if (clean.length < len) {
+            clean = new char[Math.max(len, clean.length * 2)];
+            rawIndex = new int[clean.length];
+        }
+    }
+}
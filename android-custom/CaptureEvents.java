@@ -0,0 +1,100 @@
+package com.covault.app;
+
+import android.util.Log;
+
+import org.json.JSONObject;
+
+/**
+ * Captures handed from the listener to the plugin inside the process.
+ *
+ * Every capture used to travel as a broadcast: the transaction serialised to
+ * a JSON string, an ActivityManager round trip, and the plugin's receiver
+ * parsing the string back and copying it field by field — all to move an
+ * object between two classes in the same process. Now the plugin subscribes
+ * while it is loaded and is handed a CaptureEvent on the capture thread. When
+ * nobody is subscribed, publish() says so and the listener broadcasts as it
+ * always did; with the app closed, the durable queue is what delivers it
+ * either way.
+ *
+ * One subscriber at a time, the plugin of the current bridge. A bridge being
+ * torn down after its replacement loaded unsubscribes only itself.
+ */
+final class CaptureEvents {
+
+    private CaptureEvents() {}
+
+    private static final String TAG = "CovaultCaptureEvents";
+
+    interface Subscriber {
+        /** Called on the capture thread; hand anything slow elsewhere. */
+        void onCapture(CaptureEvent event);
+    }
+
+    /** One capture, as the web layer's transactionDetected event carries it. */
+    static final class CaptureEvent {
+        final String sourceApp;
+        /** Null when no amount could be read. */
+        final Double amount;
+        final String vendor;
+        final String rawText;
+        final long timestamp;
+        final boolean fromScan;
+        /** Null when the transaction did not name one. */
+        final Integer captureNotificationId;
+
+        CaptureEvent(String sourceApp, Double amount, String vendor, String rawText,
+                     long timestamp, boolean fromScan, Integer captureNotificationId) {
+            this.sourceApp = sourceApp;
+            this.amount = amount;
+            this.vendor = vendor;
+            this.rawText = rawText;
+            this.timestamp = timestamp;
+            this.fromScan = fromScan;
+            this.captureNotificationId = captureNotificationId;
+        }
+
+        /**
+         * Read from the queued and broadcast form, with the defaults the
+         * plugin's receiver always applied.
+         */
+        static CaptureEvent from(JSONObject transaction) {
+            return new CaptureEvent(
+                transaction.optString("source_app", ""),
+                transaction.has("amount") ? transaction.optDouble("amount", 0) : null,
+                transaction.optString("vendor", "Unknown Merchant"),
+                transaction.optString("raw_text", ""),
+                transaction.optLong("timestamp", System.currentTimeMillis()),
+                transaction.optBoolean("from_scan", false),
+                transaction.has("capture_notification_id")
+                    ? transaction.optInt("capture_notification_id") : null);
+        }
+    }
+
+    private static volatile Subscriber subscriber;
+
+    static synchronized void subscribe(Subscriber s) {
+        subscriber = s;
+    }
+
+    static synchronized void unsubscribe(Subscriber s) {
+        if (subscriber == s) subscriber = null;
+    }
+
+    /**
+     * @return false when nobody is subscribed or the subscriber failed, and
+     *         the caller should broadcast instead. Never throws: by now the
+     *         capture is queued and announced, and a bridge being torn down
+     *         must not make it look otherwise.
+     */
+    static boolean publish(JSONObject transaction) {
+        Subscriber s = subscriber;
+        if (s == null) return false;
+        try {
+            s.onCapture(CaptureEvent.from(transaction));
+            return true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Capture subscriber failed; falling back to a broadcast", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.covault.app;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The one thread bank alerts are captured on.
+ *
+ * NotificationListenerService delivers its callbacks on the main looper, and
+ * capture used to run right there: the pending-queue commit(), the secured-key
+ * commit(), the Binder calls into NotificationManager, the dismissal checks.
+ * A burst of alerts queued up behind each other's fsyncs, and behind them
+ * everything else the main looper had to do — including, with the app open,
+ * drawing it.
+ *
+ * Capture now happens here instead, one task at a time and in the order the
+ * alerts arrived, so the persist → notify → dismiss sequence inside a capture
+ * is exactly what it was, and two posts of the same notification can never
+ * be handled out of order. Everything that is not a capture candidate is
+ * turned away on the main thread before it gets this far, so a chat message
+ * never waits on a bank alert's disk write.
+ *
+ * Being a single thread is also what keeps the capture state consistent. The
+ * pending queue, the secured-key record, the outcome log and the dedup map
+ * are read and written only from here; anything outside that needs one —
+ * the plugin draining the queue, the web layer cancelling a notification —
+ * hands the work over rather than taking a lock.
+ *
+ * Process-wide rather than per service instance: the queue it guards outlives
+ * the service, and the plugin may drain it while no listener is connected.
+ */
+final class CaptureExecutor {
+
+    private CaptureExecutor() {}
+
+    private static final String TAG = "CovaultCapture";
+
+    private static Handler handler;
+
+    private static synchronized Handler handler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("covault-capture");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+
+    /** Run task on the capture thread, after everything already handed over. */
+    static void execute(Runnable task) {
+        handler().post(guarded(task));
+    }
+
+    static void executeDelayed(Runnable task, long delayMs) {
+        handler().postDelayed(guarded(task), delayMs);
+    }
+
+    static boolean onCaptureThread() {
+        return Looper.myLooper() == handler().getLooper();
+    }
+
+    /**
+     * Run task on the capture thread and wait for its answer. Runs inline when
+     * already there, which would otherwise wait on itself forever.
+     *
+     * The wait cannot be cut short. Once the task is queued it will run, and a
+     * caller that stopped waiting for a drain would drop a queue that has
+     * already been cleared.
+     */
+    static <T> T call(Callable<T> task) throws Exception {
+        if (onCaptureThread()) return task.call();
+        FutureTask<T> future = new FutureTask<>(task);
+        handler().post(future);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An exception escaping a task would end the thread, and with it every
+     * capture after it until the process restarted. One alert is lost instead.
+     */
+    private static Runnable guarded(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Capture task failed", e);
+            }
+        };
+    }
+}
@@ -0,0 +1,431 @@
+package com.covault.app;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The pending queue: captures waiting for the web layer, on disk. Also the
+ * write-ahead log for the secured-notification record.
+ *
+ * It used to be a JSON array in covault_prefs. Every capture read the whole
+ * array, parsed it, appended one entry, re-serialised up to MAX_PENDING of
+ * them and committed — and a SharedPreferences commit rewrites the entire
+ * file, widget snapshot and all. A capture cost the size of everything the
+ * app had stored, and the drain held a lock across the same rewrite.
+ *
+ * This is an append-only file of framed records instead:
+ *
+ *     [length:int][crc32:int][type:byte][key][payload]
+ *
+ * length covers everything after the CRC, and the CRC is over the same bytes. A
+ * capture appends one record, so it writes what it adds and nothing else. A
+ * drain appends a DRAINED record — the cursor: everything before it has been
+ * handed over — and once the file is all drained and large enough to be worth
+ * it, it is truncated back to its header.
+ *
+ * Appending does not sync; commit() does, once, for everything appended since
+ * the last one. That is what lets one capture's durable state land in a single
+ * sync: its queue record is appended before the user is told about it, which
+ * is all a killed process needs, and commit() then adds a SECURED record for
+ * each capture that was announced and syncs the lot, before anything is
+ * dismissed. The secured keys' own store (a FingerprintSet) is then updated
+ * without a sync of its own. This file is what makes those keys durable until
+ * that store is synced, which the Checkpoint passed to open() does before a
+ * compaction drops them from here; open() hands back every SECURED record
+ * still in the file, so the owner can replay them.
+ *
+ * A process killed mid-append leaves a torn last record. Opening the file
+ * reads records until one does not check out and cuts the file there, so
+ * the cost is the record being written, which was never reported as queued,
+ * and never anything already in the queue.
+ *
+ * Keyed by notification identity (NotificationListener.securedKeyFor), and
+ * an append for a key already pending replaces that entry in place rather
+ * than adding another. A notification is queued again on every pass over it
+ * — each scan, each reconnect — and those copies used to pile up until the
+ * cap pushed real purchases out of the far end. An append identical to what
+ * is already pending writes nothing at all.
+ *
+ * Bounded as the JSON array was: past maxPending distinct undrained captures
+ * the oldest are dropped, counted in droppedCount and reported by key to the
+ * Dropped passed to open(), so the owner can stop counting them as queued. A
+ * file that grows past
+ * COMPACT_AT_BYTES without being drained is rewritten to hold only what is
+ * pending, into a new file renamed over the old, so a crash mid-compaction
+ * leaves one or the other and never neither.
+ *
+ * Not thread-safe; owned by the capture thread. See CaptureExecutor.
+ */
+final class CaptureJournal {
+
+    private static final int MAGIC = 0x43564A31; // "CVJ1"
+    private static final int HEADER_BYTES = 4;
+    private static final int FRAME_BYTES = 8;
+
+    /** An unkeyed capture, as carried over from the prefs queue. */
+    private static final byte RECORD_CAPTURE = 1;
+    private static final byte RECORD_DRAINED = 2;
+    /** A capture prefixed with its key, in DataOutput.writeUTF form. */
+    private static final byte RECORD_KEYED = 3;
+    /** A key, in the same form, that has been secured; no payload. */
+    private static final byte RECORD_SECURED = 4;
+
+    /** Makes everything SECURED records have said durable elsewhere. */
+    interface Checkpoint {
+        void run() throws IOException;
+    }
+
+    /**
+     * Told the key of each capture dropped for the cap, as this process drops
+     * it. Not told again when open() reads the same drops back.
+     */
+    interface Dropped {
+        void dropped(String key);
+    }
+
+    /** Anything longer is a corrupt length field, not a notification. */
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    static final long COMPACT_AT_BYTES = 512 * 1024;
+
+    private final File file;
+    private final int maxPending;
+    private final Checkpoint checkpoint;
+    private final Dropped onDrop;
+    private RandomAccessFile raf;
+    private long end;
+    /** Pending payloads by key, oldest first. Unkeyed entries get a private key. */
+    private final LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+    private int unkeyed;
+    private int dropped;
+    /** SECURED keys read back by open(), for the owner to replay. */
+    private final List<String> recovered = new ArrayList<>();
+    /** Whether anything has been written since the last sync. */
+    private boolean unsynced;
+
+    private CaptureJournal(File file, int maxPending, Checkpoint checkpoint, Dropped onDrop) throws IOException {
+        this.file = file;
+        this.maxPending = maxPending;
+        this.checkpoint = checkpoint;
+        this.onDrop = onDrop;
+        this.raf = new RandomAccessFile(file, "rw");
+        recover();
+    }
+
+    /** Open the journal at file, creating it if need be and repairing a torn tail. */
+    static CaptureJournal open(File file, int maxPending, Checkpoint checkpoint, Dropped onDrop) throws IOException {
+        return new CaptureJournal(file, maxPending, checkpoint, onDrop);
+    }
+
+    /**
+     * Every key a SECURED record in the file names, as of open(). Replay them
+     * into the secured store before consulting it.
+     */
+    List<String> securedKeys() {
+        return recovered;
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /** Whether the capture under key is waiting to be drained. */
+    boolean isPending(String key) {
+        return key != null && pending.containsKey(key);
+    }
+
+    /** Captures dropped for the cap since this journal was opened. */
+    int droppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Append these captures; keys.get(i) identifies payloads.get(i), and a
+     * null key never matches another entry. True once all of them are written,
+     * so that a killed process finds them on the next open; durable across a
+     * power cut only after commit(). On false none of them is written, as far
+     * as any later open is concerned.
+     */
+    boolean append(List<String> keys, List<String> payloads) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int written = 0;
+        try {
+            for (int i = 0; i < payloads.size(); i++) {
+                String key = keys.get(i);
+                String payload = payloads.get(i);
+                if (key != null && payload.equals(pending.get(key))) continue;
+                if (key == null) {
+                    frame(buf, RECORD_CAPTURE, null, payload);
+                } else {
+                    frame(buf, RECORD_KEYED, key, payload);
+                }
+                written++;
+            }
+            if (written == 0) return true;
+            write(buf.toByteArray());
+        } catch (IOException e) {
+            return false;
+        }
+        for (int i = 0; i < payloads.size(); i++) hold(keys.get(i), payloads.get(i), true);
+        compactIfLarge();
+        return true;
+    }
+
+    /**
+     * Record these keys as secured, and sync everything appended since the
+     * last commit along with them. True only once all of it is on disk. No
+     * write and no sync when there is nothing to make durable.
+     */
+    boolean commit(List<String> securedKeys) {
+        try {
+            if (!securedKeys.isEmpty()) {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                for (String key : securedKeys) frame(buf, RECORD_SECURED, key, "");
+                write(buf.toByteArray());
+            }
+            if (unsynced) {
+                raf.getFD().sync();
+                unsynced = false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        compactIfLarge();
+        return true;
+    }
+
+    /**
+     * Everything pending, oldest first, marked as handed over.
+     *
+     * The cursor is written before anything is returned: a drain the caller
+     * never finishes loses that batch, which is the same trade the queue has
+     * always made (see CovaultNotificationPlugin.drainPendingNotifications).
+     * If the cursor cannot be written, nothing is returned and the batch stays
+     * for the next drain.
+     */
+    List<String> drain() throws IOException {
+        if (pending.isEmpty()) return new ArrayList<>();
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        frame(buf, RECORD_DRAINED, null, "");
+        long previousEnd = end;
+        write(buf.toByteArray());
+        try {
+            raf.getFD().sync();
+        } catch (IOException e) {
+            // The cursor may still reach the disk from the page cache, and
+            // recover() would then clear a batch nobody was handed. Cut it off.
+            try {
+                raf.setLength(previousEnd);
+            } catch (IOException ignored) {
+                // the next open may read it; nothing more to try here
+            }
+            end = previousEnd;
+            throw e;
+        }
+        unsynced = false;
+        List<String> out = new ArrayList<>(pending.values());
+        pending.clear();
+        if (end >= COMPACT_AT_BYTES) {
+            // All drained, so compaction is just forgetting. Best-effort: the
+            // batch is already handed over, and a file left long is still right.
+            try {
+                checkpoint.run();
+                raf.setLength(HEADER_BYTES);
+                raf.getFD().sync();
+                end = HEADER_BYTES;
+            } catch (IOException e) {
+                // compacted by a later drain
+            }
+        }
+        return out;
+    }
+
+    void close() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    // ── Records ──────────────────────────────────────────────────────────
+
+    private static void frame(ByteArrayOutputStream buf, byte type, String key, String payload) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        bodyOut.writeByte(type);
+        if (key != null) bodyOut.writeUTF(key);
+        bodyOut.write(payload.getBytes(StandardCharsets.UTF_8));
+        bodyOut.flush();
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+        out.flush();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        try {
+            raf.seek(end);
+            raf.write(bytes);
+            end += bytes.length;
+            unsynced = true;
+        } catch (IOException e) {
+            // Cut back anything half-written so the next append does not
+            // land behind it and get cut off with it on the next open.
+            try {
+                raf.setLength(end);
+            } catch (IOException ignored) {
+                // the next open repairs it
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Upsert: a key already pending keeps its place and takes the new payload.
+     * report says whether a capture this pushes out is news to the owner.
+     */
+    private void hold(String key, String payload, boolean report) {
+        pending.put(key != null ? key : "\u0000" + unkeyed++, payload);
+        Iterator<String> oldest = pending.keySet().iterator();
+        while (pending.size() > maxPending) {
+            String gone = oldest.next();
+            oldest.remove();
+            dropped++;
+            if (report && !gone.startsWith("\u0000")) onDrop.dropped(gone);
+        }
+    }
+
+    /** Read back every intact record, and cut the file after the last of them. */
+    private void recover() throws IOException {
+        long length = raf.length();
+        if (length < HEADER_BYTES) {
+            raf.setLength(0);
+            raf.writeInt(MAGIC);
+            raf.getFD().sync();
+            end = HEADER_BYTES;
+            return;
+        }
+        raf.seek(0);
+        if (raf.readInt() != MAGIC) {
+            throw new IOException("Not a capture journal: " + file);
+        }
+        long at = HEADER_BYTES;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            skipFully(in, HEADER_BYTES);
+            while (at + FRAME_BYTES <= length) {
+                int size = in.readInt();
+                int expected = in.readInt();
+                if (size < 1 || size > MAX_RECORD_BYTES || at + FRAME_BYTES + size > length) break;
+                byte[] body = new byte[size];
+                in.readFully(body);
+                CRC32 crc = new CRC32();
+                crc.update(body, 0, size);
+                if ((int) crc.getValue() != expected) break;
+                if (body[0] == RECORD_CAPTURE) {
+                    hold(null, new String(body, 1, size - 1, StandardCharsets.UTF_8), false);
+                } else if (body[0] == RECORD_KEYED) {
+                    DataInputStream keyed = new DataInputStream(
+                        new ByteArrayInputStream(body, 1, size - 1));
+                    String key = keyed.readUTF();
+                    int from = size - keyed.available();
+                    hold(key, new String(body, from, size - from, StandardCharsets.UTF_8), false);
+                } else if (body[0] == RECORD_SECURED) {
+                    recovered.add(new DataInputStream(
+                        new ByteArrayInputStream(body, 1, size - 1)).readUTF());
+                } else if (body[0] == RECORD_DRAINED) {
+                    pending.clear();
+                } else {
+                    break;
+                }
+                at += FRAME_BYTES + size;
+            }
+        } catch (EOFException e) {
+            // a torn frame header; cut below
+        }
+        end = at;
+        if (end < length) {
+            raf.setLength(end);
+            raf.getFD().sync();
+        }
+        // Dropped while reading back is not dropped by this process.
+        dropped = 0;
+        // No compaction here: it would drop SECURED records before the owner
+        // has replayed them. The next append or commit compacts.
+    }
+
+    private static void skipFully(DataInputStream in, int n) throws IOException {
+        for (int left = n; left > 0; ) {
+            int skipped = in.skipBytes(left);
+            if (skipped <= 0) throw new EOFException();
+            left -= skipped;
+        }
+    }
+
+    /**
+     * Rewrite the file to hold only what is pending, once it has grown past
+     * COMPACT_AT_BYTES without a drain emptying it. Best-effort: on failure
+     * the old file, which is still correct, simply stays.
+     *
+     * SECURED records are not carried over, so the checkpoint runs first; if
+     * it cannot, nothing is dropped.
+     */
+    private void compactIfLarge() {
+        if (end < COMPACT_AT_BYTES) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            checkpoint.run();
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            new DataOutputStream(buf).writeInt(MAGIC);
+            for (Map.Entry<String, String> entry : pending.entrySet()) {
+                String key = entry.getKey();
+                if (key.startsWith("\u0000")) {
+                    frame(buf, RECORD_CAPTURE, null, entry.getValue());
+                } else {
+                    frame(buf, RECORD_KEYED, key, entry.getValue());
+                }
+            }
+            byte[] bytes = buf.toByteArray();
+            try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+                out.setLength(0);
+                out.write(bytes);
+                out.getFD().sync();
+            }
+            if (!tmp.renameTo(file)) throw new IOException("rename failed");
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        // raf still points at the old, now unlinked, file.
+        try {
+            RandomAccessFile compacted = new RandomAccessFile(file, "rw");
+            close();
+            raf = compacted;
+            end = compacted.length();
+            unsynced = false;
+        } catch (IOException e) {
+            // Appending to the unlinked file would be appending to nothing.
+            close();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.covault.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * How long each stage of a capture takes, kept as a histogram per stage.
+ *
+ * The only account of a capture's timing used to be the CAPTURE-DIAG line,
+ * which says what happened and not how long it took. "Covault is slow to
+ * notice a purchase" could be the scanner, a sync on a tired flash chip, the
+ * notification manager or the shade, and from the outside they all look the
+ * same. These say which, on the phone it is happening on.
+ *
+ * Recording is meant to be left on, so it costs two System.nanoTime() reads
+ * and an array increment: no allocation, no boxing, no disk. Each stage is a
+ * fixed array of buckets, eight to an octave of microseconds, which holds any
+ * percentile to within about 12% and is the same size at ten captures as at
+ * ten thousand. Past DECAY_AT samples a stage's buckets are halved, so what
+ * it reports is the recent few thousand captures rather than everything since
+ * install, and a one-off stall fades out instead of being the max forever.
+ *
+ * Persisted behind the captures the way the outcome log is — apply(), at most
+ * once per FLUSH_DELAY_MS — so that "slow after a reboot" is still visible
+ * after the reboot. A lost flush costs a few samples.
+ *
+ * Stages are recorded from the capture thread and, for the widget, from the
+ * main thread; the lock is uncontended in practice and allocates nothing.
+ */
+final class CaptureTimings {
+
+    private CaptureTimings() {}
+
+    private static final String TAG = "CovaultTimings";
+
+    /** Amount and vendor read out of the alert text. */
+    static final int EXTRACT = 0;
+    /** Secured-key lookup, skip rules, recurring charges, non-purchase wording. */
+    static final int CHECKS = 1;
+    /** The journal append, before anything is announced. */
+    static final int QUEUE = 2;
+    /** Posting Covault's own notification. */
+    static final int NOTIFY = 3;
+    /** The one sync that makes the batch durable. */
+    static final int COMMIT = 4;
+    /** Asking the system to remove the bank's alert. */
+    static final int DISMISS = 5;
+    /** Re-reading the shade to check it went. */
+    static final int VERIFY = 6;
+    /** Recording the widget delta and redrawing. */
+    static final int WIDGET = 7;
+
+    private static final String[] NAMES = {
+        "extract", "checks", "queue", "notify", "commit", "dismiss", "verify", "widget",
+    };
+    private static final int STAGES = NAMES.length;
+
+    /** In CovaultPrefs.capture. */
+    static final String TIMINGS_PREF = "capture_timings";
+    private static final long FLUSH_DELAY_MS = 30_000L;
+    private static final long DECAY_AT = 4096;
+
+    // Values under SUB microseconds get a bucket each; above that, every
+    // octave is cut into SUB buckets. Anything past 2^32 µs (71 minutes) is a
+    // hung thread, not a latency, and shares the last bucket.
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_OCTAVE = 32;
+    private static final int BUCKETS = SUB + (MAX_OCTAVE - SUB_BITS) * SUB;
+
+    private static final long[][] buckets = new long[STAGES][BUCKETS];
+    private static final long[] counts = new long[STAGES];
+    private static final long[] maxMicros = new long[STAGES];
+
+    private static boolean loaded;
+    private static boolean flushScheduled;
+
+    /** A start time for record(). */
+    static long start() {
+        return System.nanoTime();
+    }
+
+    /** Record that stage has taken from startNanos until now. */
+    static void record(Context context, int stage, long startNanos) {
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        synchronized (CaptureTimings.class) {
+            if (!loaded) load(context);
+            add(stage, micros < 0 ? 0 : micros);
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        Context app = context.getApplicationContext();
+        CaptureExecutor.executeDelayed(() -> flush(app), FLUSH_DELAY_MS);
+    }
+
+    /** Write out whatever has been recorded since the last flush. */
+    static void flush(Context context) {
+        String stored;
+        synchronized (CaptureTimings.class) {
+            if (!flushScheduled) return;
+            flushScheduled = false;
+            stored = serialise();
+        }
+        try {
+            CovaultPrefs.capture(context).edit().putString(TIMINGS_PREF, stored).apply();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not store the capture timings", e);
+        }
+    }
+
+    /**
+     * One summary per stage that has any samples, as a JSON array string:
+     * name, count, and p50/p95/p99/max in milliseconds.
+     */
+    static String summary(Context context) {
+        try {
+            JSONArray out = new JSONArray();
+            synchronized (CaptureTimings.class) {
+                if (!loaded) load(context);
+                for (int stage = 0; stage < STAGES; stage++) {
+                    if (counts[stage] == 0) continue;
+                    JSONObject entry = new JSONObject();
+                    entry.put("stage", NAMES[stage]);
+                    entry.put("count", counts[stage]);
+                    entry.put("p50", millis(percentile(stage, 0.50)));
+                    entry.put("p95", millis(percentile(stage, 0.95)));
+                    entry.put("p99", millis(percentile(stage, 0.99)));
+                    entry.put("max", millis(maxMicros[stage]));
+                    out.put(entry);
+                }
+            }
+            return out.toString();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not summarise the capture timings", e);
+            return "[]";
+        }
+    }
+
+    // ── Buckets ──────────────────────────────────────────────────────────
+
+    static int bucketFor(long micros) {
+        if (micros < SUB) return (int) micros;
+        int octave = 63 - Long.numberOfLeadingZeros(micros);
+        if (octave >= MAX_OCTAVE) return BUCKETS - 1;
+        int sub = (int) (micros >>> (octave - SUB_BITS)) & (SUB - 1);
+        return SUB + (octave - SUB_BITS) * SUB + sub;
+    }
+
+    /** The smallest value bucket holds. */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int octave = (bucket - SUB) / SUB + SUB_BITS;
+        long sub = (bucket - SUB) % SUB;
+        return (SUB + sub) << (octave - SUB_BITS);
+    }
+
+    private static void add(int stage, long micros) {
+        buckets[stage][bucketFor(micros)]++;
+        if (micros > maxMicros[stage]) maxMicros[stage] = micros;
+        if (++counts[stage] >= DECAY_AT) decay(stage);
+    }
+
+    /** Halve the stage. A bucket left empty takes its share of the max with it. */
+    private static void decay(int stage) {
+        long[] b = buckets[stage];
+        long total = 0;
+        int highest = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            b[i] >>= 1;
+            total += b[i];
+            if (b[i] != 0) highest = i;
+        }
+        counts[stage] = total;
+        maxMicros[stage] = highest < 0 ? 0
+            : Math.min(maxMicros[stage], highest + 1 < BUCKETS ? lowerBound(highest + 1) - 1 : Long.MAX_VALUE);
+    }
+
+    /**
+     * The top of the bucket the q-th sample falls in, capped at the max seen:
+     * never an underestimate, and never more than a bucket's width over.
+     */
+    private static long percentile(int stage, double q) {
+        long rank = (long) Math.ceil(q * counts[stage]);
+        long seen = 0;
+        long[] b = buckets[stage];
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += b[i];
+            if (seen >= rank && b[i] != 0) {
+                long top = i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : maxMicros[stage];
+                return Math.min(top, maxMicros[stage]);
+            }
+        }
+        return maxMicros[stage];
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    // ── Persistence ──────────────────────────────────────────────────────
+    //
+    // One line per stage: name, max, then bucket:count for the non-empty
+    // buckets. Counts are rebuilt from the buckets. A stage this build does
+    // not know is skipped, and so is the whole store if the bucket layout it
+    // was written with is not this one.
+
+    private static final String LAYOUT = "v1:" + SUB_BITS + ":" + MAX_OCTAVE;
+
+    private static String serialise() {
+        StringBuilder out = new StringBuilder(LAYOUT).append('\n');
+        for (int stage = 0; stage < STAGES; stage++) {
+            if (counts[stage] == 0) continue;
+            out.append(NAMES[stage]).append(' ').append(maxMicros[stage]);
+            long[] b = buckets[stage];
+            for (int i = 0; i < BUCKETS; i++) {
+                if (b[i] != 0) out.append(' ').append(i).append(':').append(b[i]);
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void load(Context context) {
+        loaded = true;
+        try {
+            restore(CovaultPrefs.capture(context).getString(TIMINGS_PREF, null));
+        } catch (Exception e) {
+            Log.w(TAG, "Could not load the capture timings", e);
+        }
+    }
+
+    private static void restore(String stored) {
+        if (stored == null) return;
+        String[] lines = stored.split("\n");
+        if (!LAYOUT.equals(lines[0])) return;
+        for (int l = 1; l < lines.length; l++) {
+            String[] f = lines[l].split(" ");
+            int stage = Arrays.asList(NAMES).indexOf(f[0]);
+            if (stage < 0 || f.length < 2) continue;
+            try {
+                long max = Long.parseLong(f[1]);
+                long[] b = new long[BUCKETS];
+                long total = 0;
+                for (int i = 2; i < f.length; i++) {
+                    int colon = f[i].indexOf(':');
+                    int bucket = Integer.parseInt(f[i].substring(0, colon));
+                    long n = Long.parseLong(f[i].substring(colon + 1));
+                    if (bucket < 0 || bucket >= BUCKETS || n < 0) throw new NumberFormatException();
+                    b[bucket] += n;
+                    total += n;
+                }
+                for (int i = 0; i < BUCKETS; i++) buckets[stage][i] += b[i];
+                counts[stage] += total;
+                maxMicros[stage] = Math.max(maxMicros[stage], max);
+            } catch (RuntimeException e) {
+                // skip the stage
+            }
+        }
+    }
+}
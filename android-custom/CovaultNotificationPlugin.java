@@ -32,9 +32,16 @@ public class CovaultNotificationPlugin extends Plugin {
 
     private BroadcastReceiver transactionReceiver;
 
+    /** Captures from the listener, handed over in-process while this plugin is loaded. */
+    private final CaptureEvents.Subscriber captureSubscriber = this::forwardCapture;
+
     @Override
     public void load() {
-        // Register a BroadcastReceiver to pick up transactions from NotificationListener
+        CaptureEvents.subscribe(captureSubscriber);
+
+        // Register a BroadcastReceiver to pick up transactions from
+        // NotificationListener when it found nobody subscribed — see
+        // CaptureEvents.
         transactionReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
@@ -42,24 +49,7 @@ public class CovaultNotificationPlugin extends Plugin {
                     String data = intent.getStringExtra("transaction_data");
                     if (data != null) {
                         try {
-                            JSONObject json = new JSONObject(data);
-                            JSObject event = new JSObject();
-                            if (json.has("amount")) {
-                                event.put("amount", json.optDouble("amount", 0));
-                            }
-                            event.put("vendor", json.optString("vendor", "Unknown Merchant"));
-                            event.put("source_app", json.optString("source_app", ""));
-                            event.put("raw_text", json.optString("raw_text", ""));
-                            event.put("timestamp", json.optLong("timestamp", System.currentTimeMillis()));
-                            event.put("from_scan", json.optBoolean("from_scan", false));
-                            if (json.has("capture_notification_id")) {
-                                event.put("capture_notification_id",
-                                    json.optInt("capture_notification_id"));
-                            }
-
-                            // Send to JavaScript listeners
-                            notifyListeners("transactionDetected", event);
-                            Log.i(TAG, "Forwarded transaction to JS: " + (event.has("amount") ? "$" + event.optDouble("amount", 0) : "amount pending") + " at " + event.optString("vendor"));
+                            forwardCapture(CaptureEvents.CaptureEvent.from(new JSONObject(data)));
                         } catch (Exception e) {
                             Log.e(TAG, "Error parsing transaction broadcast", e);
                         }
@@ -88,8 +78,8 @@ public class CovaultNotificationPlugin extends Plugin {
      */
     private void autoDetectBankingApps() {
         try {
-            String stored = getContext().getSharedPreferences("covault_prefs", 0)
-                .getString("monitored_apps", "[]");
+            String stored = CovaultPrefs.config(getContext())
+                .getString(NotificationListener.MONITORED_APPS_KEY, "[]");
             org.json.JSONArray existing = new org.json.JSONArray(stored);
 
             // Build a set of already-saved package names
@@ -119,9 +109,9 @@ public class CovaultNotificationPlugin extends Plugin {
                 for (String pkg : savedSet) {
                     merged.put(pkg);
                 }
-                getContext().getSharedPreferences("covault_prefs", 0)
+                CovaultPrefs.config(getContext())
                     .edit()
-                    .putString("monitored_apps", merged.toString())
+                    .putString(NotificationListener.MONITORED_APPS_KEY, merged.toString())
                     .apply();
                 Log.i(TAG, "autoDetectBankingApps: merged to " + savedSet.size() + " monitored apps");
             } else {
@@ -132,8 +122,27 @@ public class CovaultNotificationPlugin extends Plugin {
         }
     }
 
+    /** Send one capture to JavaScript listeners as a transactionDetected event. */
+    private void forwardCapture(CaptureEvents.CaptureEvent capture) {
+        JSObject event = new JSObject();
+        if (capture.amount != null) {
+            event.put("amount", capture.amount);
+        }
+        event.put("vendor", capture.vendor);
+        event.put("source_app", capture.sourceApp);
+        event.put("raw_text", capture.rawText);
+        event.put("timestamp", capture.timestamp);
+        event.put("from_scan", capture.fromScan);
+        if (capture.captureNotificationId != null) {
+            event.put("capture_notification_id", capture.captureNotificationId);
+        }
+        notifyListeners("transactionDetected", event);
+        Log.i(TAG, "Forwarded transaction to JS: " + (capture.amount != null ? "$" + capture.amount : "amount pending") + " at " + capture.vendor);
+    }
+
     @Override
     protected void handleOnDestroy() {
+        CaptureEvents.unsubscribe(captureSubscriber);
         if (transactionReceiver != null) {
             try {
                 getContext().unregisterReceiver(transactionReceiver);
@@ -301,18 +310,21 @@ public class CovaultNotificationPlugin extends Plugin {
     public void saveMonitoredApps(PluginCall call) {
         JSArray apps = call.getArray("apps");
         if (apps != null) {
-            getContext().getSharedPreferences("covault_prefs", 0)
+            CovaultPrefs.config(getContext())
                 .edit()
-                .putString("monitored_apps", apps.toString())
+                .putString(NotificationListener.MONITORED_APPS_KEY, apps.toString())
                 .apply();
+            // The listener's cached copy, updated now rather than when the
+            // preference change is delivered on the main thread.
+            NotificationListener.setMonitoredApps(apps.toString());
         }
         call.resolve();
     }
 
     @PluginMethod
     public void getMonitoredApps(PluginCall call) {
-        String stored = getContext().getSharedPreferences("covault_prefs", 0)
-            .getString("monitored_apps", "[]");
+        String stored = CovaultPrefs.config(getContext())
+            .getString(NotificationListener.MONITORED_APPS_KEY, "[]");
         JSObject ret = new JSObject();
         try {
             ret.put("apps", new JSArray(stored));
@@ -340,7 +352,7 @@ public class CovaultNotificationPlugin extends Plugin {
             // on the same batch. Losing a batch is preferable to wedging capture,
             // and anything still in the shade is recoverable by a scan.
             //
-            // Take-and-clear happens under NotificationListener.QUEUE_LOCK so a
+            // Take-and-clear happens on the listener's capture thread so a
             // notification arriving mid-drain cannot be swallowed by the clear.
             // That race was survivable when the bank's notification stayed in
             // the shade; with tray suppression on, the queue is the only copy.
@@ -463,7 +475,7 @@ public class CovaultNotificationPlugin extends Plugin {
             call.reject("Missing 'hidden'");
             return;
         }
-        getContext().getSharedPreferences("covault_prefs", 0)
+        CovaultPrefs.config(getContext())
             .edit()
             .putBoolean(NotificationListener.HIDE_BANK_NOTIFICATIONS_KEY, hidden)
             .commit();
@@ -509,7 +521,7 @@ public class CovaultNotificationPlugin extends Plugin {
     }
 
     /**
-     * What happened to each of the last few bank alerts.
+     * What happened to each recent bank alert, up to a day's worth.
      *
      * Suppression has several ways to decline and every one looks the same
      * in the tray: the alert stays. Without this the only account of which gate
@@ -524,6 +536,20 @@ public class CovaultNotificationPlugin extends Plugin {
         call.resolve(ret);
     }
 
+    /**
+     * How long each stage of a capture has been taking on this phone: count,
+     * p50/p95/p99 and max in milliseconds, per stage. See CaptureTimings.
+     *
+     * The diagnostics above say what happened to an alert; this says where
+     * the time went, which is the question when a purchase is slow to show.
+     */
+    @PluginMethod
+    public void getCaptureTimings(PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("stages", CaptureTimings.summary(getContext()));
+        call.resolve(ret);
+    }
+
     /**
      * Open Android's notification settings for Covault.
      *
@@ -565,8 +591,7 @@ public class CovaultNotificationPlugin extends Plugin {
         JSObject ret = new JSObject();
         String route = null;
         try {
-            android.content.SharedPreferences prefs =
-                getContext().getSharedPreferences("covault_prefs", 0);
+            android.content.SharedPreferences prefs = CovaultPrefs.general(getContext());
             route = prefs.getString(NotificationListener.PENDING_ROUTE_KEY, null);
             if (route != null) {
                 prefs.edit().remove(NotificationListener.PENDING_ROUTE_KEY).commit();
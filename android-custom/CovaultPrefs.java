@@ -0,0 +1,161 @@
+package com.covault.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which SharedPreferences file each piece of native state lives in.
+ *
+ * Everything used to share covault_prefs. A SharedPreferences file is parsed
+ * whole on first use and rewritten whole on every commit, so a capture's
+ * small write paid for the widget snapshot's size, and a listener process
+ * started cold to read one bank alert first parsed the snapshot, the widget
+ * rules and every other blob the app had ever mirrored. The state is split by
+ * who writes it and how often:
+ *
+ *   CAPTURE   written by the listener as alerts arrive — the outcome log and
+ *             the widget deltas. Small, and the only file a capture rewrites.
+ *   CONFIG    mirrored from the web layer and read by the listener on every
+ *             alert — monitored apps, the hide toggle, skip rules, recurring
+ *             charges. Written when the user changes a setting.
+ *   WIDGET    the snapshot, its category rules and the per-widget focus. The
+ *             big one, written when the app loads data and read when the
+ *             widget draws; capture never has to parse it to decide anything.
+ *   TEMPLATES the extraction templates the listener learns per app.
+ *             Rewritten whenever it learns one, so kept out of the stores
+ *             read on every alert. Nothing migrates into it; it has always
+ *             been a file of its own.
+ *   GENERAL   covault_prefs itself, now holding only the tap route parked by
+ *             MainActivity and whatever an older build left for the stores
+ *             that migrate themselves (the pending queue, the secured keys).
+ *
+ * The pending queue and the secured keys are not SharedPreferences at all any
+ * more (see CaptureJournal and FingerprintSet).
+ *
+ * Existing installs are moved over once, the first time any store is asked
+ * for in a process, before anything can read or write one: every key is
+ * copied into its new file and committed, and only then removed from the old
+ * one. A crash in between finds the copies already made on the next start,
+ * and keeps them.
+ */
+final class CovaultPrefs {
+
+    private CovaultPrefs() {}
+
+    private static final String TAG = "CovaultPrefs";
+
+    static final String CAPTURE = "covault_capture";
+    static final String CONFIG = "covault_config";
+    static final String WIDGET = "covault_widget";
+    static final String TEMPLATES = "covault_templates";
+    static final String GENERAL = "covault_prefs";
+
+    /** In GENERAL; the store layout it has been migrated to. */
+    private static final String LAYOUT_KEY = "prefs_layout";
+    private static final int LAYOUT = 1;
+
+    private static volatile boolean migrated;
+
+    static SharedPreferences capture(Context context) {
+        return open(context, CAPTURE);
+    }
+
+    static SharedPreferences config(Context context) {
+        return open(context, CONFIG);
+    }
+
+    static SharedPreferences widget(Context context) {
+        return open(context, WIDGET);
+    }
+
+    static SharedPreferences templates(Context context) {
+        return open(context, TEMPLATES);
+    }
+
+    static SharedPreferences general(Context context) {
+        return open(context, GENERAL);
+    }
+
+    private static SharedPreferences open(Context context, String name) {
+        if (!migrated) migrate(context);
+        return context.getSharedPreferences(name, 0);
+    }
+
+    /** The store a covault_prefs key moves to, or null if it stays. */
+    static String storeFor(String key) {
+        switch (key) {
+            case NotificationListener.CAPTURE_LOG_PREF:
+            case WidgetDeltaStore.DELTAS_KEY:
+                return CAPTURE;
+            case NotificationListener.MONITORED_APPS_KEY:
+            case NotificationListener.HIDE_BANK_NOTIFICATIONS_KEY:
+            case NotificationListener.SKIP_RULES_KEY:
+            case NotificationListener.RECURRING_CHARGES_KEY:
+                return CONFIG;
+            case WidgetDeltaStore.SNAPSHOT_KEY:
+            case WidgetDeltaStore.RULES_KEY:
+            case WidgetDeltaStore.AUTO_FILE_KEY:
+                return WIDGET;
+            default:
+                return key.startsWith(CovaultWidgetProvider.FOCUS_PREF + "_") ? WIDGET : null;
+        }
+    }
+
+    private static synchronized void migrate(Context context) {
+        if (migrated) return;
+        SharedPreferences general = context.getSharedPreferences(GENERAL, 0);
+        if (general.getInt(LAYOUT_KEY, 0) >= LAYOUT) {
+            migrated = true;
+            return;
+        }
+        try {
+            Map<String, SharedPreferences.Editor> editors = new java.util.HashMap<>();
+            SharedPreferences.Editor cleared = general.edit();
+            int moved = 0;
+            for (Map.Entry<String, ?> entry : general.getAll().entrySet()) {
+                String store = storeFor(entry.getKey());
+                if (store == null) continue;
+                cleared.remove(entry.getKey());
+                moved++;
+                // Already there means an earlier attempt got this far, and the
+                // value there may since have been changed; it is the newer one.
+                SharedPreferences target = context.getSharedPreferences(store, 0);
+                if (target.contains(entry.getKey())) continue;
+                SharedPreferences.Editor into = editors.get(store);
+                if (into == null) {
+                    into = target.edit();
+                    editors.put(store, into);
+                }
+                put(into, entry.getKey(), entry.getValue());
+            }
+            // Copies first, each durable, and only then the removal.
+            boolean copied = true;
+            for (SharedPreferences.Editor editor : editors.values()) copied &= editor.commit();
+            if (!copied) {
+                Log.w(TAG, "Could not write the new stores; will retry");
+                return;
+            }
+            cleared.putInt(LAYOUT_KEY, LAYOUT).commit();
+            Log.i(TAG, "Moved " + moved + " keys out of " + GENERAL);
+        } catch (Exception e) {
+            // Nothing was removed from the old file; the next access tries again.
+            Log.w(TAG, "Could not migrate " + GENERAL, e);
+            return;
+        }
+        migrated = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(SharedPreferences.Editor editor, String key, Object value) {
+        if (value instanceof String) editor.putString(key, (String) value);
+        else if (value instanceof Boolean) editor.putBoolean(key, (Boolean) value);
+        else if (value instanceof Integer) editor.putInt(key, (Integer) value);
+        else if (value instanceof Long) editor.putLong(key, (Long) value);
+        else if (value instanceof Float) editor.putFloat(key, (Float) value);
+        else if (value instanceof Set) editor.putStringSet(key, (Set<String>) value);
+    }
+}
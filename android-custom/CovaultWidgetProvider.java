@@ -32,7 +32,7 @@ public class CovaultWidgetProvider extends AppWidgetProvider {
     /** Open one category on the donut, or close whatever is open. */
     private static final String ACTION_FOCUS = "com.covault.app.WIDGET_FOCUS";
     private static final String EXTRA_FOCUS = "focus";
-    private static final String FOCUS_PREF = "widget_focus";
+    static final String FOCUS_PREF = "widget_focus";
 
     /**
      * RemoteViews cross a Binder transaction with a hard size ceiling (~1MB in
@@ -1005,7 +1005,7 @@ public class CovaultWidgetProvider extends AppWidgetProvider {
                 new ComponentName(context, CovaultWidgetProvider.class));
             if (ids == null || ids.length == 0) return;
             android.content.SharedPreferences.Editor editor =
-                context.getSharedPreferences("covault_prefs", 0).edit();
+                CovaultPrefs.widget(context).edit();
             for (int id : ids) editor.remove(FOCUS_PREF + "_" + id);
             editor.apply();
         } catch (Exception e) {
@@ -1015,7 +1015,7 @@ public class CovaultWidgetProvider extends AppWidgetProvider {
 
     private static String readFocus(Context context, int appWidgetId) {
         try {
-            return context.getSharedPreferences("covault_prefs", 0)
+            return CovaultPrefs.widget(context)
                 .getString(FOCUS_PREF + "_" + appWidgetId, "");
         } catch (Exception e) {
             return "";
@@ -1024,7 +1024,7 @@ public class CovaultWidgetProvider extends AppWidgetProvider {
 
     private static void writeFocus(Context context, int appWidgetId, String category) {
         try {
-            context.getSharedPreferences("covault_prefs", 0)
+            CovaultPrefs.widget(context)
                 .edit()
                 .putString(FOCUS_PREF + "_" + appWidgetId, category == null ? "" : category)
                 .apply();
@@ -0,0 +1,294 @@
+package com.covault.app;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers, per bank app, where the amount and vendor sat in alerts it has
+ * already sent, so the next alert worded the same way is read by slicing.
+ *
+ * Banks send a handful of sentence templates over and over. shapeOf already
+ * says what that means for skip rules — the alert with its numbers taken out
+ * — and the same idea is what makes slicing safe here, at a finer grain: the
+ * key is the text with every digit replaced by 0. Two alerts with the same key
+ * are identical except for the values of their digits, and nothing in
+ * AlertTextScanner depends on a digit's value — every pattern reads \d as a
+ * class, and no non-vendor word contains one — so the scanner would find the
+ * amount and the vendor at exactly the same offsets in both. The cached layout
+ * is therefore not a guess that needs checking; it is the answer, and a miss
+ * simply runs the scanner and records what it found.
+ *
+ * shapeOf itself cannot be the key: it folds number runs of any length to one
+ * "#" and collapses whitespace, so two alerts with the same shape can put the
+ * vendor at different offsets. It is also four regex passes, which is more
+ * than the scan this exists to skip.
+ *
+ * Bounded twice over — apps, then templates per app — and least recently used
+ * goes first, so an app that stops sending alerts ages out on its own.
+ *
+ * Persisted so a listener the system has just restarted reads its first alert
+ * from the cache too. The serialised form is a spec fingerprint followed by one
+ * tab-separated line per layout; when the patterns change the fingerprint does,
+ * and everything recorded under the old ones is dropped unread.
+ */
+final class ExtractionTemplates {
+
+    static final int MAX_APPS = 16;
+    static final int MAX_TEMPLATES_PER_APP = 32;
+
+    /** What the scanner found in one template, in raw-text offsets. */
+    static final class Layout {
+        final String masked;
+        final int amountStart;
+        final int amountEnd;
+        /** The vendor as it read in the recorded alert; null for none. */
+        final String vendor;
+        /** Raw index of each digit in vendor, in order. */
+        final int[] vendorDigits;
+
+        Layout(String masked, int amountStart, int amountEnd, String vendor, int[] vendorDigits) {
+            this.masked = masked;
+            this.amountStart = amountStart;
+            this.amountEnd = amountEnd;
+            this.vendor = vendor;
+            this.vendorDigits = vendorDigits;
+        }
+
+        boolean hasAmount() {
+            return amountStart >= 0;
+        }
+
+        double amount(String text) {
+            return AlertTextScanner.parseAmount(text, amountStart, amountEnd);
+        }
+
+        /** The recorded vendor with this alert's digits in it. */
+        String vendor(String text) {
+            if (vendor == null || vendorDigits.length == 0) return vendor;
+            char[] out = vendor.toCharArray();
+            int k = 0;
+            for (int i = 0; i < out.length; i++) {
+                if (out[i] >= '0' && out[i] <= '9') out[i] = text.charAt(vendorDigits[k++]);
+            }
+            return new String(out);
+        }
+    }
+
+    private final String fingerprint;
+
+    private final LinkedHashMap<String, LinkedHashMap<Long, Layout>> apps =
+        new LinkedHashMap<String, LinkedHashMap<Long, Layout>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LinkedHashMap<Long, Layout>> eldest) {
+                return size() > MAX_APPS;
+            }
+        };
+
+    ExtractionTemplates(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /** The layout recorded for this exact template, or null. */
+    synchronized Layout find(String app, String text) {
+        LinkedHashMap<Long, Layout> templates = apps.get(app);
+        if (templates == null) return null;
+        Layout layout = templates.get(maskedHash(text));
+        // A 64-bit collision is unlikely, not impossible, and a wrong layout
+        // would read the wrong characters as a price.
+        return layout != null && sameTemplate(layout.masked, text) ? layout : null;
+    }
+
+    /**
+     * Record what a successful scan found. Returns true if anything changed
+     * and the store is worth persisting.
+     */
+    synchronized boolean remember(String app, String text, AlertTextScanner scan) {
+        LinkedHashMap<Long, Layout> templates = apps.get(app);
+        if (templates == null) {
+            templates = newTemplateMap();
+            apps.put(app, templates);
+        }
+        long key = maskedHash(text);
+        Layout existing = templates.get(key);
+        if (existing != null && sameTemplate(existing.masked, text)) return false;
+        templates.put(key, new Layout(
+            mask(text),
+            scan.hasAmount() ? scan.amountStart() : -1,
+            scan.hasAmount() ? scan.amountEnd() : -1,
+            scan.vendor(),
+            scan.vendorDigitSources()));
+        return true;
+    }
+
+    synchronized int size() {
+        int n = 0;
+        for (LinkedHashMap<Long, Layout> templates : apps.values()) n += templates.size();
+        return n;
+    }
+
+    // ── Persistence ──────────────────────────────────────────────────────
+
+    synchronized String serialise() {
+        StringBuilder out = new StringBuilder(fingerprint).append('\n');
+        // Oldest first, so reading back in order restores the LRU order.
+        for (Map.Entry<String, LinkedHashMap<Long, Layout>> app : apps.entrySet()) {
+            for (Layout layout : app.getValue().values()) {
+                out.append(escape(app.getKey())).append('\t')
+                    .append(escape(layout.masked)).append('\t')
+                    .append(layout.amountStart).append('\t')
+                    .append(layout.amountEnd).append('\t')
+                    .append(layout.vendor == null ? "" : escape(layout.vendor)).append('\t')
+                    .append(layout.vendor == null ? "-" : joinInts(layout.vendorDigits))
+                    .append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Load what serialise() wrote. Anything unreadable, or written against
+     * different patterns, is skipped — the cost of a lost template is one scan.
+     */
+    synchronized void restore(String stored) {
+        if (stored == null || stored.isEmpty()) return;
+        String[] lines = stored.split("\n");
+        if (!fingerprint.equals(lines[0])) return;
+        for (int i = 1; i < lines.length; i++) {
+            String[] f = lines[i].split("\t", -1);
+            if (f.length != 6) continue;
+            try {
+                String app = unescape(f[0]);
+                String masked = unescape(f[1]);
+                int amountStart = Integer.parseInt(f[2]);
+                int amountEnd = Integer.parseInt(f[3]);
+                String vendor = "-".equals(f[5]) ? null : unescape(f[4]);
+                int[] digits = vendor == null ? new int[0] : splitInts(f[5]);
+                if (amountEnd > masked.length() || !digitsFit(vendor, digits, masked)) continue;
+                LinkedHashMap<Long, Layout> templates = apps.get(app);
+                if (templates == null) {
+                    templates = newTemplateMap();
+                    apps.put(app, templates);
+                }
+                templates.put(maskedHash(masked),
+                    new Layout(masked, amountStart, amountEnd, vendor, digits));
+            } catch (RuntimeException e) {
+                // skip the line
+            }
+        }
+    }
+
+    private static boolean digitsFit(String vendor, int[] digits, String masked) {
+        if (vendor == null) return true;
+        int count = 0;
+        for (int i = 0; i < vendor.length(); i++) {
+            if (vendor.charAt(i) >= '0' && vendor.charAt(i) <= '9') count++;
+        }
+        if (count != digits.length) return false;
+        for (int d : digits) if (d < 0 || d >= masked.length()) return false;
+        return true;
+    }
+
+    // ── Keys ─────────────────────────────────────────────────────────────
+
+    private static LinkedHashMap<Long, Layout> newTemplateMap() {
+        return new LinkedHashMap<Long, Layout>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Layout> eldest) {
+                return size() > MAX_TEMPLATES_PER_APP;
+            }
+        };
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** FNV-1a over the text with every digit read as 0. */
+    static long maskedHash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            h ^= isDigit(c) ? '0' : c;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    static boolean sameTemplate(String masked, String text) {
+        if (masked.length() != text.length()) return false;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if ((isDigit(c) ? '0' : c) != masked.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static String mask(String text) {
+        char[] out = text.toCharArray();
+        for (int i = 0; i < out.length; i++) if (isDigit(out[i])) out[i] = '0';
+        return new String(out);
+    }
+
+    private static String escape(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '\t': out.append("\\t"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                default: out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String unescape(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                out.append(c);
+                continue;
+            }
+            char e = s.charAt(++i);
+            out.append(e == 't' ? '\t' : e == 'n' ? '\n' : e == 'r' ? '\r' : e);
+        }
+        return out.toString();
+    }
+
+    private static String joinInts(int[] values) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.append(',');
+            out.append(values[i]);
+        }
+        return out.toString();
+    }
+
+    private static int[] splitInts(String joined) {
+        if (joined.isEmpty()) return new int[0];
+        String[] parts = joined.split(",");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = Integer.parseInt(parts[i]);
+        return out;
+    }
+
+    /** Fingerprint of a set of pattern sources, for the serialised header. */
+    static String fingerprintOf(Iterable<String> parts) {
+        long h = 0xcbf29ce484222325L;
+        Iterator<String> it = parts.iterator();
+        while (it.hasNext()) {
+            String part = it.next();
+            for (int i = 0; i < part.length(); i++) {
+                h ^= part.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= 0x1F;
+            h *= 0x100000001b3L;
+        }
+        return "v1:" + Long.toHexString(h);
+    }
+}
@@ -0,0 +1,270 @@
+package com.covault.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A bounded set of strings, remembered by 64-bit fingerprint, on disk.
+ *
+ * Built for the secured-notification record, which used to be a JSON array in
+ * covault_prefs: every alert parsed it and string-compared up to 200 keys to
+ * answer one yes/no question, and every insert rewrote the array and the rest
+ * of covault_prefs with it. The cap could not rise without both getting
+ * slower, and the cap is what decides how old an alert a rescan can still
+ * recognise instead of announcing it again.
+ *
+ * Here the file is a fixed array of slots, written in place:
+ *
+ *     header:  [magic:int][capacity:int][reserved:long]
+ *     slot:    [fingerprint:long][sequence:int][check:int]
+ *
+ * Insert number n goes to slot n % capacity, overwriting the oldest entry
+ * (first in, first out), and writes those sixteen bytes and nothing else;
+ * syncing is left to the caller, so a batch costs one.
+ * Sequence numbers restore the order on open. check ties fingerprint and
+ * sequence together, so a slot torn by a crash mid-write reads as empty
+ * rather than as some other member; a slot is the unit of loss.
+ *
+ * Lookups go to an in-memory open-addressed table over the same
+ * fingerprints, so contains() is a hash and a probe: no parsing, no string
+ * compares, and the same cost at 4096 entries as at 200.
+ *
+ * A fingerprint is a hash, so contains() can in principle say yes to a string
+ * never added. At 64 bits and a few thousand members that is around one in
+ * 10^15 per lookup, which is below anything else that can go wrong here.
+ *
+ * Not thread-safe; owned by the capture thread. See CaptureExecutor.
+ */
+final class FingerprintSet {
+
+    private static final int MAGIC = 0x43564631; // "CVF1"
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 16;
+
+    private final File file;
+    private final int capacity;
+    private RandomAccessFile raf;
+
+    /** Slot contents by slot index; 0 is empty. */
+    private final long[] slots;
+    /** Open-addressed, linear probing: fingerprint → slot index. A 0 key is empty. */
+    private final long[] tableKeys;
+    private final int[] tableSlots;
+    private final int tableMask;
+    private int next;
+    private boolean unsynced;
+
+    private FingerprintSet(File file, int capacity) throws IOException {
+        this.file = file;
+        this.capacity = capacity;
+        this.slots = new long[capacity];
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.tableKeys = new long[tableSize];
+        this.tableSlots = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        load();
+    }
+
+    /**
+     * Open the set at file, holding at most capacity members. A file written
+     * with a different capacity keeps its newest members that still fit.
+     */
+    static FingerprintSet open(File file, int capacity) throws IOException {
+        if (capacity < 1) throw new IllegalArgumentException("capacity " + capacity);
+        return new FingerprintSet(file, capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    boolean contains(String value) {
+        return value != null && indexOf(fingerprint(value)) >= 0;
+    }
+
+    /**
+     * Add these values. Values already present are not written again, and
+     * nothing at all is written when every one of them is. Written, not
+     * synced: call sync() for that, or keep the values durable elsewhere until
+     * it is called, as CaptureJournal does. Throws if the write fails, after
+     * which the set may hold some of them.
+     */
+    void addAll(List<String> values) throws IOException {
+        for (String value : values) {
+            if (value == null) continue;
+            long fp = fingerprint(value);
+            if (indexOf(fp) >= 0) continue;
+            int slot = slotFor(next);
+            writeSlot(slot, fp, next);
+            put(slot, fp);
+            next++;
+            unsynced = true;
+        }
+    }
+
+    /**
+     * Take value out, if it is in. Written as an empty slot, not synced, as
+     * addAll is; the slot is reused in its turn. Throws if the write fails,
+     * after which value is still in the set and may still be in the file.
+     */
+    void remove(String value) throws IOException {
+        if (value == null) return;
+        long fp = fingerprint(value);
+        int slot = indexOf(fp);
+        if (slot < 0) return;
+        writeSlot(slot, 0, 0);
+        remove(fp);
+        slots[slot] = 0;
+        unsynced = true;
+    }
+
+    /** Make every write so far durable. Nothing to do if there were none. */
+    void sync() throws IOException {
+        if (!unsynced) return;
+        raf.getFD().sync();
+        unsynced = false;
+    }
+
+    void close() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    // ── Fingerprints ─────────────────────────────────────────────────────
+
+    /** FNV-1a over the UTF-16 units, finished with the murmur3 mixer; never 0. */
+    static long fingerprint(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private static int check(long fp, int sequence) {
+        long h = fp ^ (sequence * 0x9E3779B97F4A7C15L) ^ MAGIC;
+        h ^= h >>> 29;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 32;
+        return (int) h;
+    }
+
+    private int slotFor(int sequence) {
+        return (sequence & Integer.MAX_VALUE) % capacity;
+    }
+
+    // ── Table ────────────────────────────────────────────────────────────
+
+    private int home(long fp) {
+        return (int) ((fp * 0x9E3779B97F4A7C15L) >>> 33) & tableMask;
+    }
+
+    /** Slot index holding fp, or -1. */
+    private int indexOf(long fp) {
+        for (int i = home(fp); tableKeys[i] != 0; i = (i + 1) & tableMask) {
+            if (tableKeys[i] == fp) return tableSlots[i];
+        }
+        return -1;
+    }
+
+    /** Put fp in slot, evicting whatever the slot held. */
+    private void put(int slot, long fp) {
+        if (slots[slot] != 0) remove(slots[slot]);
+        slots[slot] = fp;
+        int i = home(fp);
+        while (tableKeys[i] != 0) i = (i + 1) & tableMask;
+        tableKeys[i] = fp;
+        tableSlots[i] = slot;
+    }
+
+    /** Backward-shift deletion, so no probe chain is ever broken by a hole. */
+    private void remove(long fp) {
+        int i = home(fp);
+        while (tableKeys[i] != fp) {
+            if (tableKeys[i] == 0) return;
+            i = (i + 1) & tableMask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & tableMask; tableKeys[j] != 0; j = (j + 1) & tableMask) {
+            int want = home(tableKeys[j]);
+            // Move j into the hole unless its home lies cyclically in (hole, j].
+            boolean stays = hole <= j ? (hole < want && want <= j) : (hole < want || want <= j);
+            if (stays) continue;
+            tableKeys[hole] = tableKeys[j];
+            tableSlots[hole] = tableSlots[j];
+            hole = j;
+        }
+        tableKeys[hole] = 0;
+    }
+
+    // ── File ─────────────────────────────────────────────────────────────
+
+    private void writeSlot(int slot, long fp, int sequence) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(SLOT_BYTES);
+        buf.putLong(fp).putInt(sequence).putInt(check(fp, sequence));
+        raf.seek(HEADER_BYTES + (long) slot * SLOT_BYTES);
+        raf.write(buf.array());
+    }
+
+    private void load() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        List<long[]> found = new ArrayList<>();
+        int storedCapacity = 0;
+        if (raf.length() >= HEADER_BYTES) {
+            byte[] all = new byte[(int) Math.min(raf.length(), Integer.MAX_VALUE)];
+            raf.seek(0);
+            raf.readFully(all);
+            ByteBuffer in = ByteBuffer.wrap(all);
+            if (in.getInt() == MAGIC) {
+                storedCapacity = in.getInt();
+                in.position(HEADER_BYTES);
+                while (in.remaining() >= SLOT_BYTES) {
+                    long fp = in.getLong();
+                    int sequence = in.getInt();
+                    int check = in.getInt();
+                    if (fp != 0 && check == check(fp, sequence)) {
+                        found.add(new long[] { sequence & 0xFFFFFFFFL, fp });
+                    }
+                }
+            }
+        }
+        // Oldest first, then replay: the newest `capacity` survive, in order.
+        Collections.sort(found, (a, b) -> Long.compare(a[0], b[0]));
+        int from = Math.max(0, found.size() - capacity);
+        if (storedCapacity == capacity) {
+            for (int k = from; k < found.size(); k++) {
+                int sequence = (int) found.get(k)[0];
+                put(slotFor(sequence), found.get(k)[1]);
+                next = sequence + 1;
+            }
+            return;
+        }
+        // New file, foreign file or a different capacity: lay it out afresh.
+        raf.setLength(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(capacity).putLong(0);
+        raf.write(header.array());
+        raf.setLength(HEADER_BYTES + (long) capacity * SLOT_BYTES);
+        for (int k = from; k < found.size(); k++) {
+            long fp = found.get(k)[1];
+            writeSlot(next, fp, next);
+            put(next, fp);
+            next++;
+        }
+        raf.getFD().sync();
+    }
+}
@@ -0,0 +1,247 @@
+package com.covault.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds every one of a fixed set of words in a text, in a single pass.
+ *
+ * An Aho-Corasick automaton: the words are laid out as a trie, and each node
+ * also knows the longest suffix of itself that is another node (its failure
+ * link), so on a mismatch the scan falls back along that link instead of
+ * re-reading the text. The cost is one step per input character however many
+ * words there are — which is the point. The listener used to ask a dozen
+ * separate questions of every alert ("does it contain 'purchase'? 'spent'?
+ * does this regex find anything? that one?"), each starting again from the
+ * first character.
+ *
+ * Built once and then read-only, so one instance can be shared across threads.
+ *
+ * With foldCase, input is folded before it is matched and the words must
+ * already be lower-case. The folding is deliberately generous: besides ASCII
+ * A-Z it maps the handful of non-ASCII characters that a case-insensitive
+ * regex can match against ASCII letters — "ſ" for s, the Kelvin sign for k,
+ * "ß" for ss, the Latin ligatures — because Android's regex engine (ICU)
+ * folds those and the JDK's does not. A word this class does not see is then
+ * a word neither engine could have matched, which is what makes it safe to
+ * use as a filter in front of CASE_INSENSITIVE patterns.
+ */
+final class KeywordAutomaton {
+
+    private final boolean foldCase;
+    private final int wordCount;
+
+    // Edges of state s are edgeChar/edgeTarget[edgeStart[s] .. edgeStart[s+1]),
+    // sorted by character.
+    private final int[] edgeStart;
+    private final char[] edgeChar;
+    private final int[] edgeTarget;
+
+    private final int[] fail;
+    /** First word ending exactly at this state, or -1. */
+    private final int[] wordAt;
+    /** Nearest state on the failure chain that ends a word, or -1. */
+    private final int[] outputLink;
+    /** Next word with the same text as this one, or -1. */
+    private final int[] sameWord;
+
+    private KeywordAutomaton(boolean foldCase, List<String> words) {
+        this.foldCase = foldCase;
+        this.wordCount = words.size();
+
+        // Trie, with edges in a map while it is being built.
+        Map<Long, Integer> edges = new HashMap<>();
+        List<Integer> wordAtList = new ArrayList<>();
+        wordAtList.add(-1);
+        sameWord = new int[wordCount];
+        Arrays.fill(sameWord, -1);
+        for (int w = 0; w < wordCount; w++) {
+            String word = words.get(w);
+            int s = 0;
+            for (int i = 0; i < word.length(); i++) {
+                long key = ((long) s << 16) | word.charAt(i);
+                Integer next = edges.get(key);
+                if (next == null) {
+                    next = wordAtList.size();
+                    wordAtList.add(-1);
+                    edges.put(key, next);
+                }
+                s = next;
+            }
+            if (s == 0) continue; // the empty word matches nothing useful
+            int first = wordAtList.get(s);
+            if (first < 0) {
+                wordAtList.set(s, w);
+            } else {
+                while (sameWord[first] >= 0) first = sameWord[first];
+                sameWord[first] = w;
+            }
+        }
+
+        int states = wordAtList.size();
+        wordAt = new int[states];
+        for (int s = 0; s < states; s++) wordAt[s] = wordAtList.get(s);
+
+        // Flatten the edges, grouped by source state and sorted by character.
+        long[] keys = new long[edges.size()];
+        int k = 0;
+        for (Long key : edges.keySet()) keys[k++] = key;
+        Arrays.sort(keys);
+        edgeStart = new int[states + 1];
+        edgeChar = new char[keys.length];
+        edgeTarget = new int[keys.length];
+        for (int e = 0; e < keys.length; e++) {
+            int from = (int) (keys[e] >>> 16);
+            edgeChar[e] = (char) (keys[e] & 0xFFFF);
+            edgeTarget[e] = edges.get(keys[e]);
+            edgeStart[from + 1]++;
+        }
+        for (int s = 0; s < states; s++) edgeStart[s + 1] += edgeStart[s];
+
+        // Failure and output links, breadth first so every shorter suffix is
+        // resolved before anything that falls back to it.
+        fail = new int[states];
+        outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) queue.add(edgeTarget[e]);
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                int child = edgeTarget[e];
+                int f = step(fail[s], edgeChar[e]);
+                fail[child] = f;
+                outputLink[child] = wordAt[f] >= 0 ? f : outputLink[f];
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Exact, character for character. */
+    static KeywordAutomaton of(List<String> words) {
+        return new KeywordAutomaton(false, words);
+    }
+
+    /** Case-insensitive; the words must be lower-case ASCII. See the class comment. */
+    static KeywordAutomaton ignoringCase(List<String> words) {
+        return new KeywordAutomaton(true, words);
+    }
+
+    int wordCount() {
+        return wordCount;
+    }
+
+    /** True as soon as any word is found. */
+    boolean containsAny(CharSequence text) {
+        if (text == null) return false;
+        int s = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            String expansion = foldCase ? expansionOf(c) : null;
+            if (expansion == null) {
+                s = step(s, foldCase ? fold(c) : c);
+                if (endsWord(s)) return true;
+            } else {
+                for (int j = 0; j < expansion.length(); j++) {
+                    s = step(s, expansion.charAt(j));
+                    if (endsWord(s)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets bit w of hits for every word w found anywhere in text. hits comes
+     * from newHits() and is not cleared first.
+     */
+    void findAll(CharSequence text, long[] hits) {
+        if (text == null) return;
+        int s = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            String expansion = foldCase ? expansionOf(c) : null;
+            if (expansion == null) {
+                s = step(s, foldCase ? fold(c) : c);
+                mark(s, hits);
+            } else {
+                for (int j = 0; j < expansion.length(); j++) {
+                    s = step(s, expansion.charAt(j));
+                    mark(s, hits);
+                }
+            }
+        }
+    }
+
+    /** A cleared hit set sized for findAll. */
+    long[] newHits() {
+        return new long[(wordCount + 63) >>> 6];
+    }
+
+    static boolean isSet(long[] hits, int word) {
+        return (hits[word >>> 6] & (1L << word)) != 0;
+    }
+
+    private boolean endsWord(int s) {
+        return wordAt[s] >= 0 || outputLink[s] >= 0;
+    }
+
+    private void mark(int s, long[] hits) {
+        for (int t = wordAt[s] >= 0 ? s : outputLink[s]; t >= 0; t = outputLink[t]) {
+            for (int w = wordAt[t]; w >= 0; w = sameWord[w]) hits[w >>> 6] |= 1L << w;
+        }
+    }
+
+    private int step(int s, char c) {
+        while (true) {
+            int next = child(s, c);
+            if (next >= 0) return next;
+            if (s == 0) return 0;
+            s = fail[s];
+        }
+    }
+
+    private int child(int s, char c) {
+        int lo = edgeStart[s];
+        int hi = edgeStart[s + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = edgeChar[mid];
+            if (m < c) lo = mid + 1;
+            else if (m > c) hi = mid - 1;
+            else return edgeTarget[mid];
+        }
+        return -1;
+    }
+
+    private static char fold(char c) {
+        if (c >= 'A' && c <= 'Z') return (char) (c + 32);
+        switch (c) {
+            case '\u017F': return 's';   // long s
+            case '\u212A': return 'k';   // Kelvin sign
+            case '\u0130':               // capital I with dot
+            case '\u0131': return 'i';   // dotless i
+            default: return c;
+        }
+    }
+
+    /** Characters that case-fold to more than one ASCII letter. */
+    private static String expansionOf(char c) {
+        switch (c) {
+            case '\u00DF':               // sharp s
+            case '\u1E9E': return "ss";  // capital sharp s
+            case '\uFB00': return "ff";
+            case '\uFB01': return "fi";
+            case '\uFB02': return "fl";
+            case '\uFB03': return "ffi";
+            case '\uFB04': return "ffl";
+            case '\uFB05':
+            case '\uFB06': return "st";
+            default: return null;
+        }
+    }
+}
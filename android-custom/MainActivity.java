@@ -50,7 +50,7 @@ public class MainActivity extends BridgeActivity {
         // Clear it from the intent as well, so a configuration change that
         // re-delivers the same intent doesn't re-arm the navigation.
         intent.removeExtra(NotificationListener.ROUTE_EXTRA);
-        getSharedPreferences("covault_prefs", 0)
+        CovaultPrefs.general(this)
             .edit()
             .putString(NotificationListener.PENDING_ROUTE_KEY, route)
             .commit();
@@ -36,11 +36,23 @@ public class NotificationListener extends NotificationListenerService {
     public void onCreate() {
         super.onCreate();
         instance = this;
+        loadTemplates();
+        SharedPreferences prefs = CovaultPrefs.config(this);
+        prefs.registerOnSharedPreferenceChangeListener(monitoredAppsWatcher);
+        setMonitoredApps(prefs.getString(MONITORED_APPS_KEY, "[]"));
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        Context context = getApplicationContext();
+        CaptureExecutor.execute(() -> {
+            flushTemplates();
+            flushOutcomes(context);
+            CaptureTimings.flush(context);
+        });
+        CovaultPrefs.config(this)
+            .unregisterOnSharedPreferenceChangeListener(monitoredAppsWatcher);
         if (instance == this) {
             instance = null;
         }
@@ -56,6 +68,9 @@ public class NotificationListener extends NotificationListenerService {
      * We use this to immediately scan all existing notifications in the
      * shade — including ones that arrived before the app was installed or
      * before the listener was enabled.
+     *
+     * Only what is new or changed since it was last read goes through
+     * capture; the rest is already on record. See PROCESSED_FILE.
      */
     @Override
     public void onListenerConnected() {
@@ -67,7 +82,7 @@ public class NotificationListener extends NotificationListenerService {
         // notifications back on finds nothing to turn on — and tray suppression
         // stays off until they do. See canPostCaptureNotifications.
         ensureCaptureChannel(this);
-        scanActiveNotifications();
+        CaptureExecutor.execute(() -> scanActiveNotificationsNow(false));
     }
 
     /**
@@ -76,6 +91,14 @@ public class NotificationListener extends NotificationListenerService {
      * Refreshes the monitored apps list first to pick up any newly installed apps.
      */
     public void scanActiveNotifications() {
+        // On the capture thread like any live post, so a scan is ordered with
+        // them — and a drain the web layer asks for after it waits for it.
+        // The refresh button reads everything again, on record or not: it is
+        // what the user reaches for when a capture looks missing.
+        CaptureExecutor.execute(() -> scanActiveNotificationsNow(true));
+    }
+
+    private void scanActiveNotificationsNow(boolean rereadAll) {
         try {
             StatusBarNotification[] activeNotifications = getActiveNotifications();
             if (activeNotifications == null) {
@@ -83,9 +106,28 @@ public class NotificationListener extends NotificationListenerService {
                 return;
             }
             Log.i(TAG, "scanActiveNotifications: scanning " + activeNotifications.length + " active notifications");
+            // Whatever left the shade while nobody was listening: any
+            // dismissal still waiting on one of them is confirmed.
+            confirmDismissalsAbsentFrom(activeNotifications);
+            // Read the new part of the shade first, then secure it as one
+            // batch — one queue commit and one secured-key commit however much
+            // is there. What was read before only has its tray state checked.
+            java.util.List<Capture> batch = new java.util.ArrayList<>();
+            int unchanged = 0;
             for (StatusBarNotification sbn : activeNotifications) {
-                handleNotificationPosted(sbn, true);
+                if (!isCaptureSource(sbn.getPackageName())) continue;
+                String securedKey = securedKeyFor(sbn);
+                String processedKey = processedKeyFor(securedKey, sbn);
+                if (!rereadAll && wasProcessed(securedKey, processedKey)) {
+                    unchanged++;
+                    recheckTray(sbn, securedKey, processedKey);
+                    continue;
+                }
+                readCapture(sbn, securedKey, processedKey, true, batch);
             }
+            if (unchanged > 0) Log.i(TAG, "scanActiveNotifications: " + unchanged + " unchanged since last read");
+            secureCaptures(batch);
+            markProcessed(batch);
         } catch (Exception e) {
             Log.e(TAG, "Error scanning active notifications", e);
         }
@@ -499,6 +541,78 @@ public class NotificationListener extends NotificationListenerService {
         Pattern.compile("(?:merchant|vendor|store)\\s*:?\\s*([A-Za-z0-9\\s&'.-]+)", Pattern.CASE_INSENSITIVE)
     };
 
+    /**
+     * AMOUNT_PATTERNS, VENDOR_PATTERNS and stripEmoji, hand-compiled into a
+     * single pass. The patterns above stay the specification — and the
+     * fallback for text the scanner declines. See AlertTextScanner.
+     *
+     * Only ever used on the capture thread, which is what makes sharing one
+     * safe: the scanner reuses its buffers. See CaptureExecutor.
+     */
+    static final AlertTextScanner SCANNER = new AlertTextScanner(NON_VENDOR_WORDS);
+
+    // ── Extraction templates ─────────────────────────────────────────────
+    //
+    // Where the amount and vendor sat in alerts each app has already sent,
+    // kept in a store of their own: it is rewritten whenever it learns a
+    // template, and the capture and config stores are read on every alert.
+    // See CovaultPrefs.TEMPLATES.
+
+    private static final String TEMPLATES_KEY = "layouts";
+
+    /** Long enough that a burst of new templates is written once. */
+    private static final long TEMPLATE_FLUSH_DELAY_MS = 5_000L;
+
+    private ExtractionTemplates templates = newTemplates();
+    /** Capture thread only. */
+    private boolean templateFlushScheduled;
+
+    /**
+     * A template records what the patterns found, so it is only good for as
+     * long as the patterns are; the store is keyed by their sources and
+     * emptied when any of them changes.
+     */
+    private static ExtractionTemplates newTemplates() {
+        java.util.List<String> spec = new java.util.ArrayList<>();
+        for (Pattern p : AMOUNT_PATTERNS) spec.add(p.pattern());
+        for (Pattern p : VENDOR_PATTERNS) spec.add(p.pattern());
+        spec.add(EMOJI_PATTERN.pattern());
+        spec.addAll(new java.util.TreeSet<>(NON_VENDOR_WORDS));
+        return new ExtractionTemplates(ExtractionTemplates.fingerprintOf(spec));
+    }
+
+    private void loadTemplates() {
+        try {
+            templates.restore(CovaultPrefs.templates(this).getString(TEMPLATES_KEY, null));
+            Log.i(TAG, "Extraction templates loaded: " + templates.size());
+        } catch (Exception e) {
+            Log.w(TAG, "Could not load extraction templates", e);
+        }
+    }
+
+    private void scheduleTemplateFlush() {
+        if (templateFlushScheduled) return;
+        templateFlushScheduled = true;
+        CaptureExecutor.executeDelayed(this::flushTemplates, TEMPLATE_FLUSH_DELAY_MS);
+    }
+
+    /**
+     * apply() rather than commit(): a lost write costs one scan of the next
+     * alert in that template, and nothing about a capture waits on it.
+     */
+    private void flushTemplates() {
+        if (!templateFlushScheduled) return;
+        templateFlushScheduled = false;
+        try {
+            CovaultPrefs.templates(this)
+                .edit()
+                .putString(TEMPLATES_KEY, templates.serialise())
+                .apply();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not store extraction templates", e);
+        }
+    }
+
 
     /**
      * Wording that is never a purchase, mirrored from the web parser.
@@ -552,12 +666,48 @@ public class NotificationListener extends NotificationListenerService {
      */
     static boolean looksNonFinancial(String text) {
         if (text == null || text.isEmpty()) return false;
-        for (Pattern pattern : NON_PURCHASE_PATTERNS) {
-            if (pattern.matcher(text).find()) return true;
+        long[] hits = ALERT_WORDS.newHits();
+        ALERT_WORDS.findAll(text, hits);
+        for (int i = 0; i < NON_PURCHASE_PATTERNS.length; i++) {
+            if (!anchorsPresent(NON_PURCHASE_ANCHOR_IDS[i], hits)) continue;
+            if (NON_PURCHASE_PATTERNS[i].matcher(text).find()) return true;
         }
         return false;
     }
 
+    /**
+     * Words each NON_PURCHASE_PATTERNS entry cannot match without, one row
+     * per pattern and in the same order.
+     *
+     * A row is a list of slots, and a pattern is only run when every one of
+     * its slots has at least one of its words somewhere in the text. Most
+     * bank alerts contain none of these, so the usual cost of looksNonFinancial
+     * is the one pass of ALERT_WORDS rather than nine regexes. Each row has to
+     * be a necessary condition for its pattern, never a sufficient one — a
+     * word missing from a slot here would let a price alert announce itself
+     * again. quietNonPurchaseAlerts.test.ts checks every known non-purchase
+     * against these rows.
+     *
+     * Two words are cut short on purpose: "los" for loss and "mis" for miss,
+     * because a case-insensitive regex on Android matches "ß" to "ss".
+     */
+    // NON_PURCHASE_ANCHORS_BEGIN
+    private static final String[][][] NON_PURCHASE_ANCHORS = {
+        {
+            {"eth", "btc", "sol", "ada", "dot", "doge", "xrp", "matic", "avax", "link", "ltc", "usdt", "usdc", "bnb", "shib"},
+            {"up", "down", "trading", "price", "market", "rally", "crash", "surge", "drop", "gain", "los", "fell", "rose", "climb"},
+        },
+        { {"trading"} },
+        { {"market"}, {"cap"} },
+        { {"price"}, {"alert"} },
+        { {"up", "down"}, {"%"} },
+        { {"limited", "act", "don't", "exclusive", "flash"}, {"time", "now", "mis", "offer", "sale"} },
+        { {"promo", "coupon", "discount", "referral"}, {"code"} },
+        { {"earn", "free"}, {"up", "bonus", "shipping", "trial", "gift"} },
+        { {"new", "update", "what"}, {"feature", "available", "new"} },
+    };
+    // NON_PURCHASE_ANCHORS_END
+
     // Keywords that indicate a transaction notification (not just a promo)
     private static final String[] TRANSACTION_KEYWORDS = {
         "purchase", "transaction", "charged", "spent", "paid", "payment",
@@ -567,24 +717,95 @@ public class NotificationListener extends NotificationListenerService {
     };
 
     /**
-     * Load user-configured monitored apps from SharedPreferences.
+     * Every literal word the listener looks for in an alert, in one
+     * automaton: the NON_PURCHASE_ANCHORS, then TRANSACTION_KEYWORDS. One
+     * findAll() over the text answers all of them at once.
+     */
+    private static final KeywordAutomaton ALERT_WORDS;
+    /** Per pattern, per slot: the ALERT_WORDS ids that satisfy it. */
+    private static final int[][][] NON_PURCHASE_ANCHOR_IDS;
+    /** ALERT_WORDS id of TRANSACTION_KEYWORDS[0]; the rest follow in order. */
+    private static final int TRANSACTION_KEYWORDS_FROM;
+
+    static {
+        java.util.List<String> words = new java.util.ArrayList<>();
+        NON_PURCHASE_ANCHOR_IDS = new int[NON_PURCHASE_ANCHORS.length][][];
+        for (int p = 0; p < NON_PURCHASE_ANCHORS.length; p++) {
+            String[][] slots = NON_PURCHASE_ANCHORS[p];
+            NON_PURCHASE_ANCHOR_IDS[p] = new int[slots.length][];
+            for (int s = 0; s < slots.length; s++) {
+                NON_PURCHASE_ANCHOR_IDS[p][s] = new int[slots[s].length];
+                for (int w = 0; w < slots[s].length; w++) {
+                    NON_PURCHASE_ANCHOR_IDS[p][s][w] = words.size();
+                    words.add(slots[s][w]);
+                }
+            }
+        }
+        TRANSACTION_KEYWORDS_FROM = words.size();
+        words.addAll(Arrays.asList(TRANSACTION_KEYWORDS));
+        ALERT_WORDS = KeywordAutomaton.ignoringCase(words);
+    }
+
+    private static boolean anchorsPresent(int[][] slots, long[] hits) {
+        for (int[] slot : slots) {
+            boolean any = false;
+            for (int id : slot) {
+                if (KeywordAutomaton.isSet(hits, id)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) return false;
+        }
+        return true;
+    }
+
+    // ── Monitored apps ───────────────────────────────────────────────────
+    //
+    // Almost every notification a phone posts comes from an app this listener
+    // does not watch — chat, email, deliveries — so "is this one of ours?" is
+    // the question asked most often, and the answer is nearly always no. It
+    // used to be answered by parsing `monitored_apps` into a fresh set every
+    // time. Now the set is parsed once, when it changes, and a notification
+    // from anywhere else costs a hash lookup.
+    static final String MONITORED_APPS_KEY = "monitored_apps";
+
+    /** The user's monitored apps, immutable; replaced whole when the list changes. */
+    private static volatile Set<String> monitoredApps = java.util.Collections.emptySet();
+
+    /**
+     * Held in a field: SharedPreferences keeps its listeners weakly, and one
+     * held by nothing else stops being called at the next garbage collection.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener monitoredAppsWatcher =
+        (prefs, key) -> {
+            // A null key is Context-level clear() on API 30+.
+            if (key == null || MONITORED_APPS_KEY.equals(key)) {
+                setMonitoredApps(prefs.getString(MONITORED_APPS_KEY, "[]"));
+            }
+        };
+
+    /**
+     * Replace the cached monitored set from its stored JSON. Called when the
+     * preference changes, and directly by saveMonitoredApps, whose apply()
+     * would otherwise leave the change listener to catch up on the main thread
+     * while a notification was already being handled.
      */
-    private Set<String> getUserMonitoredApps() {
+    static void setMonitoredApps(String json) {
         try {
-            String stored = getSharedPreferences("covault_prefs", 0)
-                .getString("monitored_apps", "[]");
             Set<String> apps = new HashSet<>();
-            org.json.JSONArray arr = new org.json.JSONArray(stored);
+            JSONArray arr = new JSONArray(json == null ? "[]" : json);
             for (int i = 0; i < arr.length(); i++) {
                 String pkg = arr.optString(i, "").trim();
                 if (!pkg.isEmpty()) {
                     apps.add(pkg);
                 }
             }
-            return apps;
+            monitoredApps = java.util.Collections.unmodifiableSet(apps);
         } catch (Exception e) {
+            // Keep the set we had: a list that will not parse is no reason to
+            // stop capturing from the apps the user picked before it.
             Log.w(TAG, "Error loading monitored apps", e);
-            return new HashSet<>();
         }
     }
 
@@ -592,16 +813,107 @@ public class NotificationListener extends NotificationListenerService {
      * Check if a package is a monitored app (hardcoded banking apps OR user-configured).
      */
     private boolean isMonitoredApp(String packageName) {
-        if (BANKING_APPS.contains(packageName)) return true;
-        return getUserMonitoredApps().contains(packageName);
+        return BANKING_APPS.contains(packageName) || monitoredApps.contains(packageName);
+    }
+
+    /**
+     * Could a notification from this package be captured at all? The same
+     * three checks handleNotificationPosted opens with, asked on the main
+     * thread so that nothing else is handed to the capture thread.
+     */
+    private boolean isCaptureSource(String packageName) {
+        if (packageName == null || packageName.equals(getPackageName())) return false;
+        if (EXCLUDED_APPS.contains(packageName)) return false;
+        return isMonitoredApp(packageName);
     }
 
     @Override
     public void onNotificationPosted(StatusBarNotification sbn) {
-        handleNotificationPosted(sbn, false);
+        if (!isCaptureSource(sbn.getPackageName())) return;
+        CaptureExecutor.execute(() -> handleNotificationPosted(sbn, false));
     }
 
     private void handleNotificationPosted(StatusBarNotification sbn, boolean fromScan) {
+        // Android delivers a post again when the bank touches the notification
+        // in place; unchanged, there is nothing new to capture.
+        String securedKey = securedKeyFor(sbn);
+        String processedKey = processedKeyFor(securedKey, sbn);
+        if (wasProcessed(securedKey, processedKey)) {
+            recheckTray(sbn, securedKey, processedKey);
+            return;
+        }
+        java.util.List<Capture> batch = new java.util.ArrayList<>(1);
+        readCapture(sbn, securedKey, processedKey, fromScan, batch);
+        secureCaptures(batch);
+        markProcessed(batch);
+    }
+
+    /**
+     * Gone from the shade: dismissed by us, swiped by the user or withdrawn
+     * by the bank. Only a monitored app's alert can have a dismissal
+     * pending, so nothing else is handed to the capture thread.
+     */
+    @Override
+    public void onNotificationRemoved(StatusBarNotification sbn) {
+        if (!isCaptureSource(sbn.getPackageName())) return;
+        String key = sbn.getKey();
+        CaptureExecutor.execute(() -> confirmDismissal(key));
+    }
+
+
+    /**
+     * One bank alert on its way through capture: everything read and decided
+     * about it before anything is written, and what writing it achieved.
+     */
+    private static final class Capture {
+        final StatusBarNotification sbn;
+        final String securedKey;
+        /** Its key in the processed record; see PROCESSED_FILE. */
+        final String processedKey;
+        final boolean fromScan;
+        final boolean fromMonitored;
+        final Double amount;
+        final String vendor;
+        final String rawText;
+        final boolean alreadySecured;
+        final boolean ignoredByUser;
+        final boolean knownRecurring;
+        final boolean notAPurchase;
+        JSONObject transaction;
+        CaptureResult result;
+
+        Capture(StatusBarNotification sbn, String securedKey, String processedKey, boolean fromScan,
+                boolean fromMonitored, Double amount, String vendor, String rawText, boolean alreadySecured,
+                boolean ignoredByUser, boolean knownRecurring, boolean notAPurchase) {
+            this.sbn = sbn;
+            this.securedKey = securedKey;
+            this.processedKey = processedKey;
+            this.fromScan = fromScan;
+            this.fromMonitored = fromMonitored;
+            this.amount = amount;
+            this.vendor = vendor;
+            this.rawText = rawText;
+            this.alreadySecured = alreadySecured;
+            this.ignoredByUser = ignoredByUser;
+            this.knownRecurring = knownRecurring;
+            this.notAPurchase = notAPurchase;
+        }
+
+        /**
+         * Captured, queued and broadcast, but announced to nobody — see the
+         * three checks in readCapture.
+         */
+        boolean quiet() {
+            return ignoredByUser || knownRecurring || notAPurchase;
+        }
+    }
+
+    /**
+     * Read and classify one notification, adding it to batch if it is a
+     * capture. Writes nothing: that is secureCaptures, once for the batch.
+     */
+    private void readCapture(StatusBarNotification sbn, String securedKey, String processedKey,
+                             boolean fromScan, java.util.List<Capture> batch) {
         String packageName = sbn.getPackageName();
 
         // Ignore our own notifications (e.g. guide notification)
@@ -617,23 +929,6 @@ public class NotificationListener extends NotificationListenerService {
             return;
         }
 
-        Notification notification = sbn.getNotification();
-        if (notification == null) return;
-
-        Bundle extras = notification.extras;
-        if (extras == null) return;
-
-        // Extract notification text
-        String title = extras.getString(Notification.EXTRA_TITLE, "");
-        String text = extras.getString(Notification.EXTRA_TEXT, "");
-        String bigText = extras.getString(Notification.EXTRA_BIG_TEXT, "");
-
-        // Prefer bigText (expanded view) when available, otherwise use the
-        // short text.  Concatenating both would duplicate content because
-        // bigText typically contains the same message as text.
-        String body = (bigText != null && !bigText.isEmpty()) ? bigText : text;
-        String fullText = title + " " + body;
-
         // Forward any notification that looks financial: either from a known/
         // monitored banking app, OR contains a dollar amount.  The local
         // TypeScript pipeline handles classification and rejection.
@@ -654,23 +949,68 @@ public class NotificationListener extends NotificationListenerService {
         // unrecognised financial-looking apps for exactly this reason. That is
         // the recoverable failure — a missing capture the user is told about —
         // where the old behaviour's failure was a wrong row appearing unasked.
+        //
+        // Asked before the extras are touched: this is the answer for nearly
+        // every notification the phone posts, and it should cost nothing more
+        // than the lookup.
         boolean fromMonitored = isMonitoredApp(packageName);
 
         if (!fromMonitored) {
             return;
         }
 
+        Notification notification = sbn.getNotification();
+        if (notification == null) return;
+
+        Bundle extras = notification.extras;
+        if (extras == null) return;
+
+        // Extract notification text
+        String title = extras.getString(Notification.EXTRA_TITLE, "");
+        String text = extras.getString(Notification.EXTRA_TEXT, "");
+        String bigText = extras.getString(Notification.EXTRA_BIG_TEXT, "");
+
+        // Prefer bigText (expanded view) when available, otherwise use the
+        // short text.  Concatenating both would duplicate content because
+        // bigText typically contains the same message as text.
+        String body = (bigText != null && !bigText.isEmpty()) ? bigText : text;
+        String fullText = title + " " + body;
+
         // Extract transaction data (best-effort; the local extraction
-        // pipeline will handle extraction when native regex doesn't match)
-        Double amount = extractAmount(fullText);
-        String vendor = extractVendor(fullText);
+        // pipeline will handle extraction when native regex doesn't match).
+        // The scanner answers in one pass for almost every alert; the regex
+        // cascade it was compiled from handles the text it won't vouch for.
+        //
+        // An alert worded exactly like one this app has sent before is read
+        // from where its amount and vendor sat last time. See
+        // ExtractionTemplates.
+        long extractStart = CaptureTimings.start();
+        Double amount = null;
+        String vendor = null;
+        ExtractionTemplates.Layout layout = templates.find(packageName, fullText);
+        double sliced = layout != null && layout.hasAmount() ? layout.amount(fullText) : 0;
+        if (layout != null && !Double.isNaN(sliced)) {
+            amount = layout.hasAmount() ? sliced : null;
+            vendor = layout.vendor(fullText);
+        } else {
+            AlertTextScanner scanner = SCANNER;
+            if (scanner.scan(fullText)) {
+                amount = scanner.hasAmount() ? scanner.amount() : null;
+                vendor = scanner.vendor();
+                if (templates.remember(packageName, fullText, scanner)) scheduleTemplateFlush();
+            } else {
+                amount = extractAmount(fullText);
+                vendor = extractVendor(fullText);
+            }
+        }
+        CaptureTimings.record(this, CaptureTimings.EXTRACT, extractStart);
 
         Log.i(TAG, "Financial notification from " + packageName + ": " + (amount != null ? "$" + amount : "[amount pending]") + " at " + (vendor != null ? vendor : "Unknown"));
 
         // Have we already captured THIS notification and put a Covault
-        // notification in its place? See rememberSecured for why that has to
+        // notification in its place? See SECURED_KEYS_PREF for why that has to
         // outlive the process.
-        String securedKey = securedKeyFor(sbn);
+        long checksStart = CaptureTimings.start();
         boolean alreadySecured = wasSecured(securedKey);
 
         // Something the user has already marked as "not a transaction". Still
@@ -702,24 +1042,87 @@ public class NotificationListener extends NotificationListenerService {
         if (notAPurchase) {
             Log.i(TAG, "Reads as a price alert or promo rather than a purchase; capturing quietly: " + packageName);
         }
+        CaptureTimings.record(this, CaptureTimings.CHECKS, checksStart);
+
+        batch.add(new Capture(
+            sbn, securedKey, processedKey, fromScan, fromMonitored, amount, vendor, fullText, alreadySecured,
+            ignoredByUser, knownRecurring, notAPurchase));
+    }
 
-        // Broadcast to the local TypeScript pipeline which will classify
-        // as transaction or non-transaction — non-transactions will appear in
-        // the rejected card so the user can see what was processed.
-        CaptureResult result = broadcastTransaction(
-            packageName, amount, vendor, fullText, sbn.getPostTime(), fromScan, alreadySecured,
-            ignoredByUser || knownRecurring || notAPurchase);
-        boolean secured = result.secured();
+    /**
+     * Persist, notify, record, hand over, dismiss — for a whole batch of
+     * captures, one step at a time.
+     *
+     * A live post is a batch of one. A scan is everything in the shade, and
+     * used to run each item through all four steps in turn: thirty alerts
+     * meant thirty queue commits and thirty secured-key commits, each a full
+     * rewrite of covault_prefs. Taken a step at a time the batch costs one of
+     * each, and the ordering that makes dismissal safe only gets stronger:
+     * nothing is announced until every capture in the batch is on disk, and
+     * nothing is dismissed until every replacement is recorded.
+     */
+    private void secureCaptures(java.util.List<Capture> batch) {
+        if (batch.isEmpty()) return;
+
+        // Persist first, so each transaction survives even if no receiver is
+        // listening right now (app closed/backgrounded) — and before anything
+        // below announces or removes it.
+        for (Capture capture : batch) {
+            capture.transaction = transactionFor(
+                capture.sbn.getPackageName(), capture.amount, capture.vendor, capture.rawText,
+                capture.sbn.getPostTime(), capture.fromScan);
+        }
+        long queueStart = CaptureTimings.start();
+        boolean queued = queueTransactions(batch);
+        CaptureTimings.record(this, CaptureTimings.QUEUE, queueStart);
+
+        // Tell the user, where the capture is not a quiet one. Whether they
+        // were told is half of what the commit below records.
+        for (Capture capture : batch) {
+            capture.result = broadcastTransaction(
+                capture.transaction, queued, capture.sbn.getPackageName(), capture.amount,
+                capture.vendor, capture.rawText, capture.fromScan, capture.alreadySecured,
+                capture.quiet());
+        }
 
         // Recorded BEFORE the dismissal below, never after. The record is what
         // lets a later pass dismiss this notification without re-notifying; if
         // the dismissal happened first and the write then failed, the bank's
         // alert would be gone with nothing saying it had ever been replaced.
-        if (secured) rememberSecured(securedKey);
+        //
+        // And committed with the queue records above in one sync, so the
+        // batch's durable state lands at once. If that sync fails, none of
+        // this pass's captures counts as queued, and none is dismissed on it.
+        java.util.List<String> secured = new java.util.ArrayList<>();
+        for (Capture capture : batch) {
+            if (capture.result.secured()) secured.add(capture.securedKey);
+        }
+        long commitStart = CaptureTimings.start();
+        boolean committed = !queued || commitCaptures(secured);
+        if (queued) CaptureTimings.record(this, CaptureTimings.COMMIT, commitStart);
+        if (!committed) {
+            for (Capture capture : batch) {
+                capture.result = new CaptureResult(false, capture.result.notified);
+            }
+        }
+
+        // Hand over to the local TypeScript pipeline, which will classify as
+        // transaction or non-transaction — non-transactions will appear in the
+        // rejected card so the user can see what was processed. Only after
+        // the commit: the plugin may persist or show what it is handed, and
+        // must not be handed a capture the journal could still lose. If the
+        // commit failed it is handed over all the same, since it may then be
+        // the only copy there is.
+        for (Capture capture : batch) {
+            handOver(capture.transaction);
+        }
 
-        maybeHideBankNotification(
-            sbn, securedKey, fromMonitored, amount, secured || alreadySecured, result,
-            ignoredByUser, knownRecurring, notAPurchase);
+        for (Capture capture : batch) {
+            maybeHideBankNotification(
+                capture.sbn, capture.securedKey, capture.fromMonitored, capture.amount,
+                capture.result.secured() || capture.alreadySecured, capture.result,
+                capture.ignoredByUser, capture.knownRecurring, capture.notAPurchase);
+        }
 
         // Home-screen widget: nudge the donut for a purchase captured while the
         // app is closed, so it doesn't sit stale until the next app launch.
@@ -729,16 +1132,27 @@ public class NotificationListener extends NotificationListenerService {
         // load-bearing path, and none of it may be affected by widget code. A
         // widget that misses a redraw is cosmetic; a capture pipeline that
         // misses a purchase is not.
-        if (!fromScan && fromMonitored && amount != null) {
-            try {
-                if (WidgetDeltaStore.recordDelta(this, amount, vendor, sbn.getPostTime())) {
-                    // The redraw that counts up to the new figures rather than
-                    // cutting to them, when the screen is on to see it.
-                    CovaultWidgetProvider.updateAllForCapture(this);
+        //
+        // Handed to the main thread, where the widget provider keeps its own
+        // state, so the next alert does not wait on a delta write and a redraw.
+        for (Capture capture : batch) {
+            if (capture.fromScan || !capture.fromMonitored || capture.amount == null) continue;
+            final Double delta = capture.amount;
+            final String deltaVendor = capture.vendor;
+            final long postTime = capture.sbn.getPostTime();
+            mainHandler.post(() -> {
+                try {
+                    long widgetStart = CaptureTimings.start();
+                    if (WidgetDeltaStore.recordDelta(this, delta, deltaVendor, postTime)) {
+                        // The redraw that counts up to the new figures rather
+                        // than cutting to them, when the screen is on to see it.
+                        CovaultWidgetProvider.updateAllForCapture(this);
+                    }
+                    CaptureTimings.record(this, CaptureTimings.WIDGET, widgetStart);
+                } catch (Throwable t) {
+                    Log.w(TAG, "widget delta failed (capture is unaffected)", t);
                 }
-            } catch (Throwable t) {
-                Log.w(TAG, "widget delta failed (capture is unaffected)", t);
-            }
+            });
         }
     }
 
@@ -757,7 +1171,7 @@ public class NotificationListener extends NotificationListenerService {
     //   1. The user turned the feature on.
     //   2. Covault has replaced this notification: it is durably queued AND a
     //      Covault notification for it is showing — or that was true on an
-    //      earlier pass over this same notification (see rememberSecured).
+    //      earlier pass over this same notification (see commitCaptures).
     //
     //      This used to read "a live post, not a rescan", on the reasoning
     //      that a rescan only re-walks notifications already captured. That
@@ -776,8 +1190,8 @@ public class NotificationListener extends NotificationListenerService {
     //      a purchase rather than a balance alert or a login warning.
     //   5. The notification is clearable (not an ongoing/foreground one).
     //      Gate 2 is the whole of what used to be gates 6 and 7: durably
-    //      written to the pending queue (queueTransaction uses commit(), not
-    //      apply(), so a true return means the bytes are on disk and the JS
+    //      written to the pending queue (commitCaptures syncs the journal
+    //      before anything here runs, so the bytes are on disk and the JS
     //      pipeline will find them on next launch even if the process is
     //      killed a millisecond later), AND a Covault notification showing. If
     //      our own notifications are blocked at the OS level, or posting
@@ -841,6 +1255,15 @@ public class NotificationListener extends NotificationListenerService {
                 result.queued ? OUTCOME_BLOCKED : OUTCOME_NOT_SAVED);
             return;
         }
+        dismissReplaced(sbn, securedKey, app, amount);
+    }
+
+    /**
+     * Gates (1) and (5), then the dismissal itself, for an alert already
+     * known to be replaced: the end of maybeHideBankNotification, and all of
+     * recheckTray.
+     */
+    private void dismissReplaced(StatusBarNotification sbn, String securedKey, String app, Double amount) {
         if (!isHideBankNotificationsEnabled()) {  // (1)
             recordOutcome(securedKey, app, amount, OUTCOME_TOGGLE_OFF);
             return;
@@ -855,7 +1278,9 @@ public class NotificationListener extends NotificationListenerService {
                 recordOutcome(securedKey, app, amount, OUTCOME_NOT_CLEARABLE);
                 return;
             }
+            long dismissStart = CaptureTimings.start();
             cancelNotification(key);
+            CaptureTimings.record(this, CaptureTimings.DISMISS, dismissStart);
             Log.i(TAG, "Asked to dismiss bank notification after capture: " + app);
             verifyDismissal(key, securedKey, app, amount);
         } catch (Exception e) {
@@ -879,41 +1304,140 @@ public class NotificationListener extends NotificationListenerService {
      * means ask again, once — and if it survives that too, record it, because
      * at that point the phone is refusing rather than racing and no amount of
      * retrying will change it.
+     *
+     * Usually nothing has to be read at all: the system reports the removal
+     * through onNotificationRemoved, and confirmDismissal records it the
+     * moment it does. The re-read is the fallback for a removal that has not
+     * been reported by the time the check is due. It is a Binder call into
+     * system_server, and dismissals come in clusters — a reconnect scan can
+     * clear twenty alerts in the same second — so they are not checked one by
+     * one. Each joins pendingDismissals and the whole batch is checked
+     * together by checkDismissals, one shade read for however many are due.
      */
     private void verifyDismissal(String key, String securedKey, String app, Double amount) {
-        dismissHandler.postDelayed(() -> {
-            if (!isStillPosted(key)) {
-                recordOutcome(securedKey, app, amount, OUTCOME_HIDDEN);
-                return;
-            }
-            Log.i(TAG, "Bank notification survived the first dismissal, retrying: " + app);
-            try {
-                cancelNotification(key);
-            } catch (Exception e) {
-                Log.w(TAG, "Retry of the dismissal threw", e);
-                recordOutcome(securedKey, app, amount, OUTCOME_CANCEL_IGNORED);
-                return;
-            }
-            dismissHandler.postDelayed(() -> {
-                boolean gone = !isStillPosted(key);
-                if (!gone) {
-                    Log.w(TAG, "Bank notification still in the tray after two dismissals: " + app);
+        pendingDismissals.add(new PendingDismissal(key, securedKey, app, amount,
+            System.currentTimeMillis() + DISMISS_VERIFY_DELAY_MS));
+        scheduleDismissalCheck();
+    }
+
+    /**
+     * One check for every dismissal due by the time it runs. It waits
+     * DISMISS_BATCH_WINDOW_MS past the earliest, so the rest of a cluster
+     * falls due in time to share its read; none is checked sooner than
+     * DISMISS_VERIFY_DELAY_MS after it was asked for.
+     */
+    private void scheduleDismissalCheck() {
+        if (dismissalCheckScheduled || pendingDismissals.isEmpty()) return;
+        long earliest = Long.MAX_VALUE;
+        for (PendingDismissal pending : pendingDismissals) earliest = Math.min(earliest, pending.dueAtMs);
+        long delay = Math.max(0L, earliest - System.currentTimeMillis()) + DISMISS_BATCH_WINDOW_MS;
+        dismissalCheckScheduled = true;
+        CaptureExecutor.executeDelayed(this::checkDismissals, delay);
+    }
+
+    private void checkDismissals() {
+        dismissalCheckScheduled = false;
+        long now = System.currentTimeMillis();
+        java.util.List<PendingDismissal> due = new java.util.ArrayList<>();
+        for (int i = pendingDismissals.size() - 1; i >= 0; i--) {
+            if (pendingDismissals.get(i).dueAtMs <= now) due.add(0, pendingDismissals.remove(i));
+        }
+        if (!due.isEmpty()) {
+            Set<String> stillPosted = stillPosted(due);
+            for (PendingDismissal pending : due) {
+                if (!stillPosted.contains(pending.key)) {
+                    recordOutcome(pending.securedKey, pending.app, pending.amount, OUTCOME_HIDDEN);
+                } else if (pending.retried) {
+                    Log.w(TAG, "Bank notification still in the tray after two dismissals: " + pending.app);
+                    recordOutcome(pending.securedKey, pending.app, pending.amount, OUTCOME_CANCEL_IGNORED);
+                } else {
+                    retryDismissal(pending, now);
                 }
-                recordOutcome(securedKey, app, amount, gone ? OUTCOME_HIDDEN : OUTCOME_CANCEL_IGNORED);
-            }, DISMISS_VERIFY_DELAY_MS);
-        }, DISMISS_VERIFY_DELAY_MS);
+            }
+        }
+        scheduleDismissalCheck();
+    }
+
+    /** The system says this key has left the shade: any dismissal of it worked. */
+    private void confirmDismissal(String key) {
+        for (int i = pendingDismissals.size() - 1; i >= 0; i--) {
+            PendingDismissal pending = pendingDismissals.get(i);
+            if (!pending.key.equals(key)) continue;
+            pendingDismissals.remove(i);
+            recordOutcome(pending.securedKey, pending.app, pending.amount, OUTCOME_HIDDEN);
+        }
+    }
+
+    /**
+     * A whole shade read already in hand: every dismissal waiting on a key
+     * that is not in it worked.
+     */
+    private void confirmDismissalsAbsentFrom(StatusBarNotification[] active) {
+        if (pendingDismissals.isEmpty()) return;
+        Set<String> present = new HashSet<>();
+        for (StatusBarNotification sbn : active) {
+            if (sbn != null) present.add(sbn.getKey());
+        }
+        for (int i = pendingDismissals.size() - 1; i >= 0; i--) {
+            PendingDismissal pending = pendingDismissals.get(i);
+            if (present.contains(pending.key)) continue;
+            pendingDismissals.remove(i);
+            recordOutcome(pending.securedKey, pending.app, pending.amount, OUTCOME_HIDDEN);
+        }
+    }
+
+    /** The survivor of a first dismissal: ask again, and check it again later. */
+    private void retryDismissal(PendingDismissal pending, long now) {
+        Log.i(TAG, "Bank notification survived the first dismissal, retrying: " + pending.app);
+        try {
+            cancelNotification(pending.key);
+        } catch (Exception e) {
+            Log.w(TAG, "Retry of the dismissal threw", e);
+            recordOutcome(pending.securedKey, pending.app, pending.amount, OUTCOME_CANCEL_IGNORED);
+            return;
+        }
+        pending.retried = true;
+        pending.dueAtMs = now + DISMISS_VERIFY_DELAY_MS;
+        pendingDismissals.add(pending);
     }
 
-    /** Is this notification still in the shade? */
-    private boolean isStillPosted(String key) {
+    /** Which of these are still in the shade, in one read. */
+    private Set<String> stillPosted(java.util.List<PendingDismissal> due) {
+        String[] keys = new String[due.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = due.get(i).key;
+        Set<String> posted = new HashSet<>();
+        long verifyStart = CaptureTimings.start();
         try {
-            StatusBarNotification[] active = getActiveNotifications(new String[] { key });
-            return active != null && active.length > 0;
+            StatusBarNotification[] active = getActiveNotifications(keys);
+            CaptureTimings.record(this, CaptureTimings.VERIFY, verifyStart);
+            if (active != null) {
+                for (StatusBarNotification sbn : active) {
+                    if (sbn != null) posted.add(sbn.getKey());
+                }
+            }
         } catch (Exception e) {
             // Unable to tell. Read as "gone" so a notification that was in fact
             // dismissed is never cancelled a second time on a guess.
             Log.w(TAG, "Could not re-read the shade", e);
-            return false;
+        }
+        return posted;
+    }
+
+    /** A dismissal waiting for the shade to confirm it. Capture thread only. */
+    private static final class PendingDismissal {
+        final String key;
+        final String securedKey;
+        final String app;
+        final Double amount;
+        long dueAtMs;
+        boolean retried;
+
+        PendingDismissal(String key, String securedKey, String app, Double amount, long dueAtMs) {
+            this.key = key;
+            this.securedKey = securedKey;
+            this.app = app;
+            this.amount = amount;
+            this.dueAtMs = dueAtMs;
         }
     }
 
@@ -941,7 +1465,7 @@ public class NotificationListener extends NotificationListenerService {
      */
     static boolean isHideBankNotificationsEnabled(Context context) {
         try {
-            SharedPreferences prefs = context.getSharedPreferences("covault_prefs", 0);
+            SharedPreferences prefs = CovaultPrefs.config(context);
             if (!prefs.contains(HIDE_BANK_NOTIFICATIONS_KEY)) return true;
             return prefs.getBoolean(HIDE_BANK_NOTIFICATIONS_KEY, true);
         } catch (Exception e) {
@@ -979,21 +1503,33 @@ public class NotificationListener extends NotificationListenerService {
      * commit() rather than apply(): the caller is the web layer telling us the
      * user just changed their mind, and the very next notification — which can
      * arrive before a background flush lands — is the one they want silenced.
+     * For the same reason the compiled index is swapped in here, not on the
+     * next read.
      */
     static void saveSkipRules(Context context, String rulesJson) {
         try {
             // Parse before storing so a malformed payload is rejected here
             // rather than throwing on every notification afterwards.
-            String toStore = new JSONArray(rulesJson == null ? "[]" : rulesJson).toString();
-            context.getSharedPreferences("covault_prefs", 0)
+            JSONArray rules = new JSONArray(rulesJson == null ? "[]" : rulesJson);
+            String toStore = rules.toString();
+            CovaultPrefs.config(context)
                 .edit()
                 .putString(SKIP_RULES_KEY, toStore)
                 .commit();
+            skipRules = SkipRules.compile(rules);
+            restampRules(context);
         } catch (Exception e) {
             Log.w(TAG, "Could not store skip rules", e);
         }
     }
 
+    /**
+     * The stored rules, compiled. Null until the first notification of this
+     * process reads them back, or the web layer sends a new set; nothing else
+     * writes SKIP_RULES_KEY, so nothing else can make it stale.
+     */
+    private static volatile SkipRules skipRules;
+
     /**
      * Has the user asked for alerts like this one to be ignored?
      *
@@ -1008,11 +1544,43 @@ public class NotificationListener extends NotificationListenerService {
         String trimmed = text.trim();
         if (trimmed.isEmpty()) return false;
         try {
-            String stored = context.getSharedPreferences("covault_prefs", 0)
-                .getString(SKIP_RULES_KEY, "[]");
-            JSONArray rules = new JSONArray(stored);
-            String lower = trimmed.toLowerCase();
-            String textShape = shapeOf(trimmed);
+            SkipRules rules = skipRules;
+            // The contains side is lowercased in the device locale, as the
+            // text it is compared with is; recompile if that has changed.
+            if (rules == null || !rules.locale.equals(java.util.Locale.getDefault())) {
+                String stored = CovaultPrefs.config(context)
+                    .getString(SKIP_RULES_KEY, "[]");
+                rules = SkipRules.compile(new JSONArray(stored));
+                skipRules = rules;
+            }
+            return rules.matches(trimmed);
+        } catch (Exception e) {
+            // An unreadable rule list means we do not know the user said ignore,
+            // and the safe reading of "don't know" is to behave as before.
+            Log.w(TAG, "Could not read skip rules", e);
+        }
+        return false;
+    }
+
+    /**
+     * The skip rules, sorted by how they compare. A user who marks every promo
+     * "not a transaction" ends up with hundreds of rules, and checking them one
+     * at a time meant lowercasing and shaping — four regex passes — each of
+     * them against every alert. Compiled, exact rules are two hash lookups and
+     * every contains rule is found in one pass over the text, so an alert costs
+     * the same however many rules there are: one shapeOf of its own, and only
+     * when some rule has a shape to compare.
+     */
+    static final class SkipRules {
+        final java.util.Locale locale = java.util.Locale.getDefault();
+        private final Set<String> exactText = new HashSet<>();
+        private final Set<String> exactShapes = new HashSet<>();
+        private final KeywordAutomaton containsText;
+        private final KeywordAutomaton containsShapes;
+
+        private SkipRules(JSONArray rules) {
+            java.util.List<String> lowered = new java.util.ArrayList<>();
+            java.util.List<String> shapes = new java.util.ArrayList<>();
             for (int i = 0; i < rules.length(); i++) {
                 JSONObject rule = rules.optJSONObject(i);
                 if (rule == null) continue;
@@ -1020,23 +1588,39 @@ public class NotificationListener extends NotificationListenerService {
                 if (pattern.isEmpty()) continue;
                 boolean contains = "contains".equals(rule.optString("pattern_type", "exact"));
                 if (contains) {
-                    if (lower.contains(pattern.toLowerCase())) return true;
-                } else if (trimmed.equals(pattern)) {
-                    return true;
+                    lowered.add(pattern.toLowerCase());
+                } else {
+                    exactText.add(pattern);
                 }
                 // The same alert with a different number in it. See shapeOf.
                 String patternShape = shapeOf(pattern);
                 if (patternShape.isEmpty() || !HAS_LETTER.matcher(patternShape).find()) continue;
-                if (contains ? textShape.contains(patternShape) : textShape.equals(patternShape)) {
-                    return true;
+                if (contains) {
+                    shapes.add(patternShape);
+                } else {
+                    exactShapes.add(patternShape);
                 }
             }
-        } catch (Exception e) {
-            // An unreadable rule list means we do not know the user said ignore,
-            // and the safe reading of "don't know" is to behave as before.
-            Log.w(TAG, "Could not read skip rules", e);
+            containsText = lowered.isEmpty() ? null : KeywordAutomaton.of(lowered);
+            containsShapes = shapes.isEmpty() ? null : KeywordAutomaton.of(shapes);
+        }
+
+        static SkipRules compile(JSONArray rules) {
+            return new SkipRules(rules);
+        }
+
+        /** trimmed: the alert text, already trimmed and non-empty. */
+        boolean matches(String trimmed) {
+            if (exactText.contains(trimmed)) return true;
+            if (containsText != null) {
+                String lower = trimmed.toLowerCase();
+                if (containsText.containsAny(lower)) return true;
+            }
+            if (exactShapes.isEmpty() && containsShapes == null) return false;
+            String textShape = shapeOf(trimmed);
+            if (exactShapes.contains(textShape)) return true;
+            return containsShapes != null && containsShapes.containsAny(textShape);
         }
-        return false;
     }
 
     /**
@@ -1142,22 +1726,32 @@ public class NotificationListener extends NotificationListenerService {
      *
      * commit() rather than apply(): the next notification can arrive before a
      * background flush lands, and that notification is the one this exists to
-     * silence.
+     * silence. The compiled index is swapped in here for the same reason.
      */
     static void saveRecurringCharges(Context context, String chargesJson) {
         try {
             // Parse before storing so a malformed payload is rejected here
             // rather than throwing on every notification afterwards.
-            String toStore = new JSONArray(chargesJson == null ? "[]" : chargesJson).toString();
-            context.getSharedPreferences("covault_prefs", 0)
+            JSONArray charges = new JSONArray(chargesJson == null ? "[]" : chargesJson);
+            String toStore = charges.toString();
+            CovaultPrefs.config(context)
                 .edit()
                 .putString(RECURRING_CHARGES_KEY, toStore)
                 .commit();
+            recurringCharges = RecurringCharges.compile(charges);
+            restampRules(context);
         } catch (Exception e) {
             Log.w(TAG, "Could not store recurring charges", e);
         }
     }
 
+    /**
+     * The stored charges, compiled. Null until the first notification of this
+     * process reads them back, or the web layer sends a new set — the only
+     * writer of RECURRING_CHARGES_KEY.
+     */
+    private static volatile RecurringCharges recurringCharges;
+
     /**
      * Is this alert a charge Covault is already expecting?
      *
@@ -1167,25 +1761,17 @@ public class NotificationListener extends NotificationListenerService {
      */
     static boolean matchesRecurringCharge(Context context, Double amount, String text) {
         if (amount == null || text == null) return false;
-        // Punctuation stripped from the alert as well as from the stored name,
-        // because the two are almost never punctuated the same way: the books
-        // say "Netflix*" and the bank says "NETFLIX.COM".
-        String haystack = normaliseForRecurring(text);
-        if (haystack.isEmpty()) return false;
         try {
-            String stored = context.getSharedPreferences("covault_prefs", 0)
-                .getString(RECURRING_CHARGES_KEY, "[]");
-            JSONArray charges = new JSONArray(stored);
-            for (int i = 0; i < charges.length(); i++) {
-                JSONObject charge = charges.optJSONObject(i);
-                if (charge == null) continue;
-                double chargeAmount = charge.optDouble("amount", Double.NaN);
-                if (Double.isNaN(chargeAmount)) continue;
-                if (Math.abs(chargeAmount - amount) > RECURRING_AMOUNT_TOLERANCE) continue;
-                String vendor = normaliseForRecurring(charge.optString("vendor", ""));
-                if (vendor.length() < RECURRING_MIN_VENDOR_LENGTH) continue;
-                if (haystack.contains(vendor)) return true;
+            RecurringCharges charges = recurringCharges;
+            // Stored names are normalised in the device locale, as the alert
+            // is; recompile if that has changed.
+            if (charges == null || !charges.locale.equals(java.util.Locale.getDefault())) {
+                String stored = CovaultPrefs.config(context)
+                    .getString(RECURRING_CHARGES_KEY, "[]");
+                charges = RecurringCharges.compile(new JSONArray(stored));
+                recurringCharges = charges;
             }
+            return charges.matches(amount, text);
         } catch (Exception e) {
             // Not knowing means behaving as before: announce the capture, and
             // let the web layer take it back down if it turns out to be one of
@@ -1195,6 +1781,112 @@ public class NotificationListener extends NotificationListenerService {
         return false;
     }
 
+    /**
+     * The recurring charges, keyed by amount in cents, with every vendor name
+     * already normalised. Most alerts are for an amount nothing on the books
+     * bills, and those now cost a hash probe or three and no regex at all; a
+     * household with forty subscriptions used to pay for all forty on every
+     * alert, re-parsing the JSON and re-normalising each name.
+     *
+     * An open-addressed table of primitive keys rather than a HashMap, so a
+     * lookup allocates nothing. Cents are the key but not the test: an amount
+     * within RECURRING_AMOUNT_TOLERANCE can round to the neighbouring cent, so
+     * both neighbours are probed and each entry still compares its exact
+     * amount, exactly as the loop it replaces did.
+     */
+    static final class RecurringCharges {
+        final java.util.Locale locale = java.util.Locale.getDefault();
+        private final long[] keys;
+        /** Per slot: the exact amounts and normalised vendors billed at that many cents. */
+        private final double[][] amounts;
+        private final String[][] vendors;
+        private final int mask;
+
+        private RecurringCharges(JSONArray charges) {
+            java.util.Map<Long, java.util.List<Integer>> byCents = new java.util.LinkedHashMap<>();
+            double[] chargeAmounts = new double[charges.length()];
+            String[] chargeVendors = new String[charges.length()];
+            for (int i = 0; i < charges.length(); i++) {
+                JSONObject charge = charges.optJSONObject(i);
+                if (charge == null) continue;
+                double chargeAmount = charge.optDouble("amount", Double.NaN);
+                if (Double.isNaN(chargeAmount) || Double.isInfinite(chargeAmount)) continue;
+                String vendor = normaliseForRecurring(charge.optString("vendor", ""));
+                if (vendor.length() < RECURRING_MIN_VENDOR_LENGTH) continue;
+                chargeAmounts[i] = chargeAmount;
+                chargeVendors[i] = vendor;
+                Long cents = Math.round(chargeAmount * 100);
+                java.util.List<Integer> at = byCents.get(cents);
+                if (at == null) {
+                    at = new java.util.ArrayList<>();
+                    byCents.put(cents, at);
+                }
+                at.add(i);
+            }
+
+            int capacity = 4;
+            while (capacity < byCents.size() * 2) capacity <<= 1;
+            mask = capacity - 1;
+            keys = new long[capacity];
+            amounts = new double[capacity][];
+            vendors = new String[capacity][];
+            for (java.util.Map.Entry<Long, java.util.List<Integer>> entry : byCents.entrySet()) {
+                int slot = slotFor(entry.getKey());
+                while (vendors[slot] != null) slot = (slot + 1) & mask;
+                java.util.List<Integer> at = entry.getValue();
+                keys[slot] = entry.getKey();
+                amounts[slot] = new double[at.size()];
+                vendors[slot] = new String[at.size()];
+                for (int j = 0; j < at.size(); j++) {
+                    amounts[slot][j] = chargeAmounts[at.get(j)];
+                    vendors[slot][j] = chargeVendors[at.get(j)];
+                }
+            }
+        }
+
+        static RecurringCharges compile(JSONArray charges) {
+            return new RecurringCharges(charges);
+        }
+
+        boolean matches(double amount, String text) {
+            if (Double.isNaN(amount) || Double.isInfinite(amount)) return false;
+            long cents = Math.round(amount * 100);
+            int below = find(cents - 1);
+            int at = find(cents);
+            int above = find(cents + 1);
+            if (below < 0 && at < 0 && above < 0) return false;
+            // Punctuation stripped from the alert as well as from the stored
+            // name, because the two are almost never punctuated the same way:
+            // the books say "Netflix*" and the bank says "NETFLIX.COM".
+            String haystack = normaliseForRecurring(text);
+            if (haystack.isEmpty()) return false;
+            return matchesAt(below, amount, haystack)
+                || matchesAt(at, amount, haystack)
+                || matchesAt(above, amount, haystack);
+        }
+
+        private boolean matchesAt(int slot, double amount, String haystack) {
+            if (slot < 0) return false;
+            for (int j = 0; j < vendors[slot].length; j++) {
+                if (Math.abs(amounts[slot][j] - amount) > RECURRING_AMOUNT_TOLERANCE) continue;
+                if (haystack.contains(vendors[slot][j])) return true;
+            }
+            return false;
+        }
+
+        private int find(long cents) {
+            for (int slot = slotFor(cents); vendors[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == cents) return slot;
+            }
+            return -1;
+        }
+
+        private int slotFor(long cents) {
+            long h = cents * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+
     // ── What happened to each bank alert ─────────────────────────────────
     //
     // Suppression has several ways to decline and they all look the same from the
@@ -1207,13 +1899,23 @@ public class NotificationListener extends NotificationListenerService {
     // that manages to dismiss what an earlier one couldn't updates the answer
     // instead of leaving a stale complaint behind it.
     //
-    // apply() rather than commit() here, deliberately and unlike everything
-    // else in this file: nothing acts on this record. Losing it costs an empty
-    // diagnostics list, never a purchase, so it must not make the capture path
-    // wait on a disk write.
-    private static final String CAPTURE_LOG_PREF = "capture_outcomes";
-    private static final int MAX_CAPTURE_LOG = 8;
-    private static final Object CAPTURE_LOG_LOCK = new Object();
+    // Held in memory and written out behind the captures rather than by them:
+    // nothing acts on this record. Losing it costs a shorter diagnostics list,
+    // never a purchase, so recording an outcome is a map update and the disk
+    // sees at most one write per CAPTURE_LOG_FLUSH_DELAY_MS however many
+    // alerts land in that window, plus one when the service is destroyed. The
+    // write is apply(), for the same reason. Since recording is that cheap the
+    // log can hold a day's alerts rather than the last handful.
+    //
+    // Capture thread only, readers included — readCaptureOutcomes hands its
+    // read over rather than taking a lock. See CaptureExecutor.
+    static final String CAPTURE_LOG_PREF = "capture_outcomes";
+    private static final int CAPTURE_LOG_CAPACITY = 64;
+    private static final long CAPTURE_LOG_FLUSH_DELAY_MS = 5_000L;
+
+    /** Loaded from CAPTURE_LOG_PREF on first use. */
+    private static OutcomeLog outcomeLog;
+    private static boolean outcomeFlushScheduled;
 
     /** Dismissed, and confirmed gone from the shade. */
     static final String OUTCOME_HIDDEN = "hidden";
@@ -1250,49 +1952,40 @@ public class NotificationListener extends NotificationListenerService {
     static final String OUTCOME_NOT_A_PURCHASE = "not_a_purchase";
 
     private static final long DISMISS_VERIFY_DELAY_MS = 700L;
-    private final android.os.Handler dismissHandler =
+    /** How long a dismissal check waits for the rest of a cluster to fall due. */
+    private static final long DISMISS_BATCH_WINDOW_MS = 250L;
+    private final java.util.List<PendingDismissal> pendingDismissals = new java.util.ArrayList<>();
+    private boolean dismissalCheckScheduled;
+    private final android.os.Handler mainHandler =
         new android.os.Handler(android.os.Looper.getMainLooper());
 
-    private void recordOutcome(String securedKey, String app, Double amount, String outcome) {
-        try {
-            synchronized (CAPTURE_LOG_LOCK) {
-                SharedPreferences prefs = getSharedPreferences("covault_prefs", 0);
-                JSONArray stored;
-                try {
-                    stored = new JSONArray(prefs.getString(CAPTURE_LOG_PREF, "[]"));
-                } catch (Exception e) {
-                    stored = new JSONArray();
-                }
+    private static OutcomeLog outcomeLog(Context context) {
+        if (outcomeLog == null) {
+            OutcomeLog loaded = new OutcomeLog(CAPTURE_LOG_CAPACITY);
+            loaded.restore(CovaultPrefs.capture(context).getString(CAPTURE_LOG_PREF, null));
+            outcomeLog = loaded;
+        }
+        return outcomeLog;
+    }
 
-                JSONObject entry = new JSONObject();
-                entry.put("key", securedKey == null ? "" : securedKey);
-                entry.put("at", System.currentTimeMillis());
-                entry.put("app", app == null ? "" : app);
-                if (amount != null) entry.put("amount", amount);
-                entry.put("outcome", outcome);
-
-                // Rebuild without any earlier row for this same alert, then put
-                // the new answer last — newest at the end, one row per alert.
-                JSONArray next = new JSONArray();
-                for (int i = 0; i < stored.length(); i++) {
-                    JSONObject row = stored.optJSONObject(i);
-                    if (row == null) continue;
-                    if (securedKey != null && securedKey.equals(row.optString("key", null))) continue;
-                    next.put(row);
-                }
-                next.put(entry);
+    private void recordOutcome(String securedKey, String app, Double amount, String outcome) {
+        outcomeLog(this).record(securedKey, System.currentTimeMillis(), app, amount, outcome);
+        if (outcomeFlushScheduled) return;
+        outcomeFlushScheduled = true;
+        Context context = getApplicationContext();
+        CaptureExecutor.executeDelayed(() -> flushOutcomes(context), CAPTURE_LOG_FLUSH_DELAY_MS);
+    }
 
-                JSONArray trimmed = next;
-                if (next.length() > MAX_CAPTURE_LOG) {
-                    trimmed = new JSONArray();
-                    for (int i = next.length() - MAX_CAPTURE_LOG; i < next.length(); i++) {
-                        trimmed.put(next.get(i));
-                    }
-                }
-                prefs.edit().putString(CAPTURE_LOG_PREF, trimmed.toString()).apply();
-            }
+    private static void flushOutcomes(Context context) {
+        if (!outcomeFlushScheduled) return;
+        outcomeFlushScheduled = false;
+        try {
+            CovaultPrefs.capture(context)
+                .edit()
+                .putString(CAPTURE_LOG_PREF, outcomeLog.serialise())
+                .apply();
         } catch (Exception e) {
-            Log.w(TAG, "Could not record the capture outcome", e);
+            Log.w(TAG, "Could not store the capture outcomes", e);
         }
     }
 
@@ -1301,19 +1994,100 @@ public class NotificationListener extends NotificationListenerService {
      *
      * Handed over as text rather than a parsed structure so the shape lives in
      * exactly one place — the JS side already has to validate whatever arrives.
+     * Read from the in-memory log, so it includes what has not been flushed.
      */
     static String readCaptureOutcomes(Context context) {
         try {
-            synchronized (CAPTURE_LOG_LOCK) {
-                return context.getSharedPreferences("covault_prefs", 0)
-                    .getString(CAPTURE_LOG_PREF, "[]");
-            }
+            return CaptureExecutor.call(() -> outcomeLog(context).serialise());
         } catch (Exception e) {
             Log.w(TAG, "Could not read the capture outcomes", e);
             return "[]";
         }
     }
 
+    /**
+     * One row per alert, oldest first, at most capacity of them.
+     *
+     * Keyed by secured key so a later answer for the same alert replaces the
+     * earlier one and moves to the end: a remove and a put, both constant time,
+     * with the map's own insertion order doing what rebuilding the JSON array
+     * used to. Rows without a key never replace anything.
+     */
+    private static final class OutcomeLog {
+
+        private static final class Row {
+            final String key;
+            final long at;
+            final String app;
+            final Double amount;
+            final String outcome;
+
+            Row(String key, long at, String app, Double amount, String outcome) {
+                this.key = key;
+                this.at = at;
+                this.app = app;
+                this.amount = amount;
+                this.outcome = outcome;
+            }
+        }
+
+        private final java.util.LinkedHashMap<String, Row> rows;
+        private int unkeyed;
+
+        OutcomeLog(final int capacity) {
+            rows = new java.util.LinkedHashMap<String, Row>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(java.util.Map.Entry<String, Row> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        void record(String key, long at, String app, Double amount, String outcome) {
+            String id = key == null || key.isEmpty() ? "\u0000" + unkeyed++ : key;
+            rows.remove(id);
+            rows.put(id, new Row(key, at, app, amount, outcome));
+        }
+
+        /** The amount last recorded under key, if it is still in the log. */
+        Double amountFor(String key) {
+            Row row = key == null || key.isEmpty() ? null : rows.get(key);
+            return row == null ? null : row.amount;
+        }
+
+        String serialise() throws org.json.JSONException {
+            JSONArray out = new JSONArray();
+            for (Row row : rows.values()) {
+                JSONObject entry = new JSONObject();
+                entry.put("key", row.key == null ? "" : row.key);
+                entry.put("at", row.at);
+                entry.put("app", row.app == null ? "" : row.app);
+                if (row.amount != null) entry.put("amount", row.amount);
+                entry.put("outcome", row.outcome);
+                out.put(entry);
+            }
+            return out.toString();
+        }
+
+        /** Load what serialise() wrote; unreadable rows are skipped. */
+        void restore(String stored) {
+            if (stored == null) return;
+            try {
+                JSONArray in = new JSONArray(stored);
+                for (int i = 0; i < in.length(); i++) {
+                    JSONObject row = in.optJSONObject(i);
+                    if (row == null || !row.has("outcome")) continue;
+                    record(row.optString("key", ""), row.optLong("at", 0),
+                        row.optString("app", ""),
+                        row.has("amount") ? row.optDouble("amount") : null,
+                        row.optString("outcome"));
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Dropping an unreadable capture outcome log", e);
+            }
+        }
+    }
+
     // ── The record of what Covault has already replaced ──────────────────
     //
     // A notification can be walked more than once: the live post, then a scan
@@ -1333,9 +2107,20 @@ public class NotificationListener extends NotificationListenerService {
     // Covault notification posted). A key in here is therefore a promise that
     // the user has already seen this purchase, which is what makes dismissing
     // the bank's copy on a later pass safe.
+    //
+    // Kept in a FingerprintSet of its own rather than in covault_prefs, so a
+    // lookup is a hash probe and an insert writes sixteen bytes. That is also
+    // what lets the cap sit far above the 200 it used to be: it bounds how
+    // old an alert a rescan can recognise, and it no longer costs anything
+    // per capture to raise it. SECURED_KEYS_PREF is where the record used to
+    // live, read once to carry an older build's keys over.
+    //
+    // Read and written only on the capture thread. See CaptureExecutor.
     private static final String SECURED_KEYS_PREF = "secured_notifications";
-    private static final int MAX_SECURED_KEYS = 200;
-    private static final Object SECURED_LOCK = new Object();
+    private static final String SECURED_FILE = "secured_notifications";
+    private static final int MAX_SECURED_KEYS = 4096;
+
+    private static FingerprintSet securedSet;
 
     /**
      * Identity of one notification, stable across rescans.
@@ -1350,17 +2135,31 @@ public class NotificationListener extends NotificationListenerService {
         return (key == null ? sbn.getPackageName() : key) + "|" + sbn.getPostTime();
     }
 
+    private static FingerprintSet securedSet(Context context) throws java.io.IOException {
+        openCaptureStores(context);
+        return securedSet;
+    }
+
+    private static void migrateLegacySecured(Context context, FingerprintSet into) throws java.io.IOException {
+        SharedPreferences prefs = CovaultPrefs.general(context);
+        String legacy = prefs.getString(SECURED_KEYS_PREF, null);
+        if (legacy == null) return;
+        java.util.List<String> keys = new java.util.ArrayList<>();
+        try {
+            JSONArray stored = new JSONArray(legacy);
+            for (int i = 0; i < stored.length(); i++) keys.add(stored.optString(i, null));
+        } catch (Exception e) {
+            // Nothing readable to carry over; see wasSecured.
+        }
+        into.addAll(keys);
+        into.sync();
+        prefs.edit().remove(SECURED_KEYS_PREF).commit();
+    }
+
     private boolean wasSecured(String securedKey) {
         if (securedKey == null) return false;
         try {
-            synchronized (SECURED_LOCK) {
-                String stored = getSharedPreferences("covault_prefs", 0)
-                    .getString(SECURED_KEYS_PREF, "[]");
-                JSONArray keys = new JSONArray(stored);
-                for (int i = 0; i < keys.length(); i++) {
-                    if (securedKey.equals(keys.optString(i, null))) return true;
-                }
-            }
+            return securedSet(this).contains(securedKey);
         } catch (Exception e) {
             // An unreadable record is not a promise that the user was told, so
             // it must read as "no". The cost is one extra capture notification.
@@ -1370,43 +2169,222 @@ public class NotificationListener extends NotificationListenerService {
     }
 
     /**
-     * Remember that this notification has been captured and replaced.
+     * Make the batch durable: the queue records queueTransactions appended,
+     * and a record that each of these notifications has been captured and
+     * replaced, with a single sync between them. See CaptureJournal.
      *
-     * commit(), not apply(), for the same reason the pending queue uses it: a
-     * later pass dismisses the bank's notification on the strength of this
-     * record, so it has to mean "written", not "queued to be written".
+     * @return true only once all of it is on disk. A later pass dismisses the
+     * bank's notification on the strength of the secured record, and this one
+     * is about to on the strength of the queue, so on false nothing may be.
      */
-    private void rememberSecured(String securedKey) {
-        if (securedKey == null) return;
+    private boolean commitCaptures(java.util.List<String> securedKeys) {
         try {
-            synchronized (SECURED_LOCK) {
-                SharedPreferences prefs = getSharedPreferences("covault_prefs", 0);
-                JSONArray keys;
-                try {
-                    keys = new JSONArray(prefs.getString(SECURED_KEYS_PREF, "[]"));
-                } catch (Exception e) {
-                    keys = new JSONArray();
-                }
-                for (int i = 0; i < keys.length(); i++) {
-                    if (securedKey.equals(keys.optString(i, null))) return;
-                }
-                keys.put(securedKey);
-                if (keys.length() > MAX_SECURED_KEYS) {
-                    JSONArray trimmed = new JSONArray();
-                    for (int i = keys.length() - MAX_SECURED_KEYS; i < keys.length(); i++) {
-                        trimmed.put(keys.get(i));
-                    }
-                    keys = trimmed;
-                }
-                prefs.edit().putString(SECURED_KEYS_PREF, keys.toString()).commit();
+            if (!journal(this).commit(securedKeys)) {
+                Log.e(TAG, "Could not sync the capture journal");
+                closeCaptureStores();
+                return false;
             }
-        } catch (Exception e) {
-            // Losing the record costs one duplicate capture notification the
-            // next time the shade is walked. It never costs a purchase.
+        } catch (java.io.IOException e) {
+            Log.e(TAG, "Error opening the capture journal", e);
+            return false;
+        }
+        try {
+            // No sync: the journal holds these until the set's next checkpoint.
+            securedSet.addAll(securedKeys);
+        } catch (java.io.IOException e) {
+            // Durable regardless; reopening replays them from the journal.
             Log.w(TAG, "Could not record the secured notification", e);
+            closeCaptureStores();
+        }
+        return true;
+    }
+
+    // Which posts have already been through capture. Android posts a
+    // notification again whenever its app touches it, and every connect
+    // walked the whole shade; each of those passes re-ran extraction, the
+    // three checks, the queue write and the broadcast for text that had not
+    // changed, so a scan cost the size of the shade rather than the number of
+    // new alerts in it. The refresh button still reads everything; see
+    // scanActiveNotifications.
+    //
+    // Keyed by securedKeyFor plus a fingerprint of the text capture reads
+    // plus rulesStamp: a bank that rewrites an alert in place, or a user who
+    // changes a skip rule or a recurring charge, gets a full read again. An
+    // alert whose capture may still go differently — not queued, or blocked
+    // from being announced — is never recorded, so it is retried on every
+    // pass as before. Recorded with "|tray" appended when the full pass found
+    // it replaced, which is all recheckTray needs to dismiss it without
+    // reading it.
+    //
+    // A record only holds while its capture is pending in the journal or has
+    // been drained. Past MAX_PENDING the journal drops the oldest captures,
+    // and an alert whose capture was dropped must be read and queued again
+    // on the next pass, not skipped as done. So each capture also records
+    // its securedKey with "|queued" appended, wasProcessed asks for both, and
+    // the journal's drop callback takes the "|queued" one out again (see
+    // forgetQueued).
+    //
+    // A FingerprintSet again, written and never synced: a record lost to a
+    // crash costs one more full read of that alert, nothing else. A removal
+    // is not synced either. A killed process still has it, since the write
+    // is with the kernel; only a power cut in the moments after a drop could
+    // lose one. Syncing it would cost a second sync per capture for as long
+    // as the journal stays full. Capture thread only. See CaptureExecutor.
+    private static final String PROCESSED_FILE = "processed_notifications";
+    private static final int MAX_PROCESSED = 4096;
+    private static final String PROCESSED_TRAY = "|tray";
+    private static final String PROCESSED_QUEUED = "|queued";
+
+    private static FingerprintSet processedSet;
+
+    /**
+     * The stored skip rules and recurring charges, fingerprinted. Null until
+     * the first capture of this process reads them, or a save recomputes it.
+     * Written under RULES_STAMP_LOCK only: a capture thread that read the old
+     * rules just before a save must not publish its stamp after the saver's.
+     */
+    private static volatile String rulesStamp;
+    private static final Object RULES_STAMP_LOCK = new Object();
+
+    private static FingerprintSet processedSet(Context context) throws java.io.IOException {
+        if (processedSet == null) {
+            processedSet = FingerprintSet.open(
+                new java.io.File(context.getFilesDir(), PROCESSED_FILE), MAX_PROCESSED);
+        }
+        return processedSet;
+    }
+
+    private static String rulesStamp(Context context) {
+        String stamp = rulesStamp;
+        if (stamp != null) return stamp;
+        synchronized (RULES_STAMP_LOCK) {
+            if (rulesStamp == null) rulesStamp = stampOf(context);
+            return rulesStamp;
         }
     }
 
+    /** After a save has committed: the new rules' stamp, published last. */
+    private static void restampRules(Context context) {
+        synchronized (RULES_STAMP_LOCK) {
+            rulesStamp = stampOf(context);
+        }
+    }
+
+    private static String stampOf(Context context) {
+        SharedPreferences config = CovaultPrefs.config(context);
+        return Long.toHexString(FingerprintSet.fingerprint(
+            config.getString(SKIP_RULES_KEY, "[]") + "\n" + config.getString(RECURRING_CHARGES_KEY, "[]")));
+    }
+
+    /** Worked out once per post, before the decision to read it. */
+    private String processedKeyFor(String securedKey, StatusBarNotification sbn) {
+        return securedKey + "|" + Long.toHexString(contentFingerprint(sbn)) + "|" + rulesStamp(this);
+    }
+
+    /**
+     * The title, text and big text readCapture reads, hashed in place: a bank
+     * that edits an alert under the same key and post time still reads as
+     * changed.
+     */
+    private static long contentFingerprint(StatusBarNotification sbn) {
+        long h = 0xcbf29ce484222325L;
+        Notification notification = sbn.getNotification();
+        Bundle extras = notification == null ? null : notification.extras;
+        if (extras == null) return h;
+        h = mixFingerprint(h, extras.getString(Notification.EXTRA_TITLE, ""));
+        h = mixFingerprint(h, extras.getString(Notification.EXTRA_TEXT, ""));
+        h = mixFingerprint(h, extras.getString(Notification.EXTRA_BIG_TEXT, ""));
+        return h;
+    }
+
+    private static long mixFingerprint(long h, String part) {
+        if (part != null) {
+            for (int i = 0, n = part.length(); i < n; i++) {
+                h ^= part.charAt(i);
+                h *= 0x100000001b3L;
+            }
+        }
+        // A separator, so "ab" + "c" and "a" + "bc" differ.
+        h ^= 0x1f;
+        h *= 0x100000001b3L;
+        return h;
+    }
+
+    private boolean wasProcessed(String securedKey, String processedKey) {
+        try {
+            FingerprintSet processed = processedSet(this);
+            return processed.contains(processedKey) && processed.contains(securedKey + PROCESSED_QUEUED);
+        } catch (Exception e) {
+            // Not knowing means reading it again, which is what always happened.
+            Log.w(TAG, "Could not read the processed-notification record", e);
+        }
+        return false;
+    }
+
+    /**
+     * Record the captures in batch that no later pass could do differently.
+     * Queued is not enough on its own: a batch bigger than MAX_PENDING has
+     * already pushed its own oldest captures out of the journal.
+     */
+    private void markProcessed(java.util.List<Capture> batch) {
+        if (batch.isEmpty()) return;
+        java.util.List<String> done = new java.util.ArrayList<>(batch.size() * 3);
+        for (Capture capture : batch) {
+            CaptureResult result = capture.result;
+            if (result == null || !result.queued) continue;
+            if (journal == null || !journal.isPending(capture.securedKey)) continue;
+            boolean replaced = result.secured() || capture.alreadySecured;
+            if (!replaced && !capture.quiet()) continue;
+            done.add(capture.processedKey);
+            done.add(capture.securedKey + PROCESSED_QUEUED);
+            if (replaced && !capture.quiet() && capture.amount != null) {
+                done.add(capture.processedKey + PROCESSED_TRAY);
+            }
+        }
+        try {
+            processedSet(this).addAll(done);
+        } catch (java.io.IOException e) {
+            Log.w(TAG, "Could not record the processed notifications", e);
+            if (processedSet != null) processedSet.close();
+            processedSet = null;
+        }
+    }
+
+    /**
+     * The journal dropped this capture for the cap, so it is no longer queued
+     * and the next pass over its alert must read it again. See
+     * PROCESSED_FILE.
+     */
+    private static void forgetQueued(Context context, String securedKey) {
+        try {
+            processedSet(context).remove(securedKey + PROCESSED_QUEUED);
+        } catch (java.io.IOException e) {
+            // A record that cannot be corrected is forgotten whole: every
+            // alert is read once more, and none is skipped wrongly.
+            Log.w(TAG, "Could not update the processed-notification record; dropping it", e);
+            if (processedSet != null) processedSet.close();
+            processedSet = null;
+            new java.io.File(context.getFilesDir(), PROCESSED_FILE).delete();
+        }
+    }
+
+    /**
+     * The tray half of capture, for a post already read: what
+     * maybeHideBankNotification decided on the full pass, applied again.
+     * Only an alert that pass found replaced is dismissed, and only through
+     * the same last two gates.
+     */
+    private void recheckTray(StatusBarNotification sbn, String securedKey, String processedKey) {
+        try {
+            if (!processedSet(this).contains(processedKey + PROCESSED_TRAY)) return;
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read the processed-notification record", e);
+            return;
+        }
+        String app = sbn.getPackageName();
+        dismissReplaced(sbn, securedKey, app, outcomeLog(this).amountFor(securedKey));
+    }
+
     /**
      * Where a tapped notification should land the user.
      *
@@ -1429,15 +2407,11 @@ public class NotificationListener extends NotificationListenerService {
     /** SharedPreferences key MainActivity parks the route in until JS asks. */
     static final String PENDING_ROUTE_KEY = "pending_route";
 
-    @Override
-    public void onNotificationRemoved(StatusBarNotification sbn) {
-        // Not needed for our use case
-    }
-
     private boolean isTransactionNotification(String text) {
-        String lowerText = text.toLowerCase();
-        for (String keyword : TRANSACTION_KEYWORDS) {
-            if (lowerText.contains(keyword)) {
+        long[] hits = ALERT_WORDS.newHits();
+        ALERT_WORDS.findAll(text, hits);
+        for (int i = 0; i < TRANSACTION_KEYWORDS.length; i++) {
+            if (KeywordAutomaton.isSet(hits, TRANSACTION_KEYWORDS_FROM + i)) {
                 return true;
             }
         }
@@ -1452,7 +2426,7 @@ public class NotificationListener extends NotificationListenerService {
         return false;
     }
 
-    private Double extractAmount(String text) {
+    static Double extractAmount(String text) {
         for (Pattern pattern : AMOUNT_PATTERNS) {
             Matcher matcher = pattern.matcher(text);
             if (matcher.find()) {
@@ -1468,7 +2442,7 @@ public class NotificationListener extends NotificationListenerService {
     }
 
     /** Remove emoji/pictographs so the vendor patterns can match across them. */
-    private static String stripEmoji(String text) {
+    static String stripEmoji(String text) {
         if (text == null) return "";
         return EMOJI_PATTERN.matcher(text).replaceAll(" ").replaceAll("\\s{2,}", " ").trim();
     }
@@ -1478,7 +2452,9 @@ public class NotificationListener extends NotificationListenerService {
      * landed in the description instead of the merchant name.
      */
     private static boolean isNonVendor(String candidate) {
-        String[] tokens = candidate.toLowerCase().split("[^a-z0-9']+");
+        // Locale.US: under a Turkish locale "PAID" would lower-case to "paıd"
+        // and slip past the list. AlertTextScanner relies on this too.
+        String[] tokens = candidate.toLowerCase(java.util.Locale.US).split("[^a-z0-9']+");
         boolean sawToken = false;
         for (String token : tokens) {
             if (token.isEmpty()) continue;
@@ -1488,7 +2464,7 @@ public class NotificationListener extends NotificationListenerService {
         return sawToken;
     }
 
-    private String extractVendor(String text) {
+    static String extractVendor(String text) {
         // Strip emoji FIRST. See EMOJI_PATTERN — a category glyph between the
         // merchant name and the spending verb otherwise defeats every
         // merchant-leading pattern.
@@ -1522,42 +2498,114 @@ public class NotificationListener extends NotificationListenerService {
      * scanActiveNotifications() can never find it either, so the purchase is
      * lost outright. Queuing here means the JS side can drain it on next launch.
      *
-     * The queue is bounded and drained-and-cleared by the plugin. Delivering the
-     * same notification twice is harmless — the JS pipeline's in-memory and
-     * persistent dedup collapse it.
+     * The queue is bounded and drained-and-cleared by the plugin, and holds one
+     * entry per notification however often it is queued between drains.
+     * Delivering the same notification across two drains is harmless — the JS
+     * pipeline's in-memory and persistent dedup collapse it.
+     *
+     * It lives in its own file, a CaptureJournal, rather than in covault_prefs:
+     * see that class for why. PENDING_QUEUE_KEY is where it used to live, read
+     * once to carry over whatever an older build left queued.
      */
     private static final String PENDING_QUEUE_KEY = "pending_notifications";
+    private static final String JOURNAL_FILE = "capture_journal";
     private static final int MAX_PENDING = 200;
 
+    /** Opened on first use. Capture thread only. */
+    private static CaptureJournal journal;
+
+    private static CaptureJournal journal(android.content.Context context) throws java.io.IOException {
+        openCaptureStores(context);
+        return journal;
+    }
+
     /**
-     * Guards the pending queue's read-modify-write.
-     *
-     * The service appends to the queue and the plugin drains-and-clears it,
-     * both in this process and on different threads. Without a lock the two
-     * interleave: the plugin reads the stored array, the service commits an
-     * appended copy, then the plugin's clear lands and the just-appended entry
-     * is gone. That used to be survivable — the notification was still sitting
-     * in the shade for scanActiveNotifications() to find. With tray
-     * suppression on, that notification has been dismissed, so the queue is
-     * the only copy and losing an entry means losing the purchase.
+     * The journal and the secured set open together: the set first, then the
+     * journal, whose SECURED records are replayed into the set before anything
+     * asks it a question. Either both are open or neither is.
      */
-    static final Object QUEUE_LOCK = new Object();
+    private static void openCaptureStores(Context context) throws java.io.IOException {
+        if (journal != null) return;
+        FingerprintSet set = FingerprintSet.open(
+            new java.io.File(context.getFilesDir(), SECURED_FILE), MAX_SECURED_KEYS);
+        try {
+            migrateLegacySecured(context, set);
+            CaptureJournal opened = CaptureJournal.open(
+                new java.io.File(context.getFilesDir(), JOURNAL_FILE), MAX_PENDING, set::sync,
+                key -> forgetQueued(context, key));
+            set.addAll(opened.securedKeys());
+            migrateLegacyQueue(context, opened);
+            securedSet = set;
+            journal = opened;
+        } catch (java.io.IOException e) {
+            set.close();
+            throw e;
+        }
+    }
+
+    /** After a failed write: the next capture reopens both, which repairs them. */
+    private static void closeCaptureStores() {
+        if (journal != null) journal.close();
+        if (securedSet != null) securedSet.close();
+        journal = null;
+        securedSet = null;
+    }
+
+    /**
+     * Move a queue an older build left in covault_prefs into the journal. The
+     * key is removed only after the entries are synced, so a crash in between
+     * delivers them twice, which the JS dedup absorbs, and never zero times.
+     */
+    private static void migrateLegacyQueue(android.content.Context context, CaptureJournal into) {
+        android.content.SharedPreferences prefs = CovaultPrefs.general(context);
+        String stored = prefs.getString(PENDING_QUEUE_KEY, null);
+        if (stored == null) return;
+        java.util.List<String> keys = new java.util.ArrayList<>();
+        java.util.List<String> records = new java.util.ArrayList<>();
+        try {
+            JSONArray legacy = new JSONArray(stored);
+            for (int i = 0; i < legacy.length(); i++) {
+                JSONObject entry = legacy.optJSONObject(i);
+                if (entry == null) continue;
+                // Written before the queue was keyed; nothing to match them on.
+                keys.add(null);
+                records.add(entry.toString());
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping an unreadable legacy pending queue", e);
+        }
+        if (into.append(keys, records) && into.commit(java.util.Collections.<String>emptyList())) {
+            prefs.edit().remove(PENDING_QUEUE_KEY).commit();
+        }
+    }
 
     /**
      * Atomically take everything in the pending queue and clear it.
      * Called by the plugin on the JS side's behalf.
      *
      * Clearing before the caller has processed the batch is deliberate (see
-     * CovaultNotificationPlugin.drainPendingNotifications) — the point of the
-     * lock is only that a concurrent append cannot be swallowed by the clear.
+     * CovaultNotificationPlugin.drainPendingNotifications). What must not
+     * happen is an append landing between the read and the clear: that entry
+     * would be swallowed, and with tray suppression on the queue is the only
+     * copy of the purchase. The service appends on the capture thread, so the
+     * drain runs there too, between two captures rather than inside one — and
+     * after any scan already handed over, so a refresh followed by a drain
+     * returns what the refresh found. See CaptureExecutor.
      */
     static String drainPendingQueue(android.content.Context context) {
-        synchronized (QUEUE_LOCK) {
-            android.content.SharedPreferences prefs =
-                context.getSharedPreferences("covault_prefs", 0);
-            String stored = prefs.getString(PENDING_QUEUE_KEY, "[]");
-            prefs.edit().remove(PENDING_QUEUE_KEY).commit();
-            return stored;
+        try {
+            return CaptureExecutor.call(() -> {
+                java.util.List<String> drained = journal(context).drain();
+                StringBuilder out = new StringBuilder("[");
+                for (int i = 0; i < drained.size(); i++) {
+                    if (i > 0) out.append(',');
+                    out.append(drained.get(i));
+                }
+                return out.append(']').toString();
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Could not drain the pending queue", e);
+            return "[]";
         }
     }
 
@@ -1574,7 +2622,29 @@ public class NotificationListener extends NotificationListenerService {
      */
     private static final String CAPTURE_CHANNEL_ID = "covault_captures";
     private static final long CAPTURE_NOTIFY_WINDOW_MS = 60_000L;
-    private final java.util.Map<String, Long> recentCaptureNotifications = new java.util.HashMap<>();
+    private static final String RECENT_CAPTURES_FILE = "recent_captures";
+
+    /**
+     * What was announced inside CAPTURE_NOTIFY_WINDOW_MS. Static and mirrored
+     * to a file, so neither a new service instance nor a new process posts the
+     * same purchase again. Opened on first use. Capture thread only.
+     */
+    private static RecentCaptures recentCaptures;
+
+    private static RecentCaptures recentCaptures(Context context, long nowMs) {
+        if (recentCaptures == null) {
+            try {
+                recentCaptures = RecentCaptures.open(
+                    new java.io.File(context.getFilesDir(), RECENT_CAPTURES_FILE), CAPTURE_NOTIFY_WINDOW_MS, nowMs);
+            } catch (java.io.IOException e) {
+                // The window then lasts only as long as the process; the cost
+                // of that is a duplicate notification after a restart.
+                Log.w(TAG, "Could not open the recent captures file", e);
+                recentCaptures = RecentCaptures.inMemory(CAPTURE_NOTIFY_WINDOW_MS);
+            }
+        }
+        return recentCaptures;
+    }
 
     private static void ensureCaptureChannel(android.app.NotificationManager nm) {
         if (android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.O) return;
@@ -1684,7 +2754,7 @@ public class NotificationListener extends NotificationListenerService {
      * after all, and a second copy of this arithmetic drifting apart would mean
      * cancelling a notification that isn't there while the wrong one stays.
      */
-    private static String captureDedupKey(Double amount, String vendor, String rawText) {
+    static String captureDedupKey(Double amount, String vendor, String rawText) {
         boolean haveVendor = vendor != null && !vendor.isEmpty();
         String dedupBasis = haveVendor
             ? vendor.toLowerCase()
@@ -1722,15 +2792,10 @@ public class NotificationListener extends NotificationListenerService {
 
             String dedupKey = captureDedupKey(amount, vendor, rawText);
             long now = System.currentTimeMillis();
-            // Locked because cancelCaptureNotification prunes the same map from
-            // whichever thread the web layer's cancel arrives on.
-            synchronized (recentCaptureNotifications) {
-                java.util.Iterator<java.util.Map.Entry<String, Long>> it = recentCaptureNotifications.entrySet().iterator();
-                while (it.hasNext()) {
-                    if (now - it.next().getValue() > CAPTURE_NOTIFY_WINDOW_MS) it.remove();
-                }
-                if (recentCaptureNotifications.containsKey(dedupKey)) return true;
-            }
+            // No lock: this belongs to the capture thread, and
+            // cancelCaptureNotification hands its removal over to it.
+            RecentCaptures recent = recentCaptures(this, now);
+            if (recent.contains(dedupKey, now)) return true;
 
             android.app.NotificationManager nm =
                 (android.app.NotificationManager) getSystemService(NOTIFICATION_SERVICE);
@@ -1757,9 +2822,7 @@ public class NotificationListener extends NotificationListenerService {
                 return false;
             }
 
-            synchronized (recentCaptureNotifications) {
-                recentCaptureNotifications.put(dedupKey, now);
-            }
+            recent.add(dedupKey, dedupKey.hashCode(), now);
 
             Intent open = getPackageManager().getLaunchIntentForPackage(getPackageName());
             android.app.PendingIntent contentIntent = null;
@@ -1821,56 +2884,44 @@ public class NotificationListener extends NotificationListenerService {
         } catch (Exception e) {
             Log.w(TAG, "Could not cancel capture notification " + id, e);
         }
-        NotificationListener live = getInstance();
-        if (live == null) return;
-        try {
-            synchronized (live.recentCaptureNotifications) {
-                java.util.Iterator<java.util.Map.Entry<String, Long>> it =
-                    live.recentCaptureNotifications.entrySet().iterator();
-                while (it.hasNext()) {
-                    if (it.next().getKey().hashCode() == id) it.remove();
-                }
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Could not clear the dedup entry for " + id, e);
-        }
+        CaptureExecutor.execute(() ->
+            recentCaptures(context, System.currentTimeMillis()).removeId(id));
     }
 
     /**
-     * @return true only once the entry is durably on disk.
+     * @return true once every entry of the batch is written to the journal.
+     *
+     * Written, so a process killed from here on still has them, but not yet
+     * synced: commitCaptures syncs them together with the secured record, so a
+     * capture costs one sync rather than one per store. Nothing is dismissed
+     * before that sync — the tray-suppression path acts on "on disk", not on
+     * "handed to the kernel".
      *
-     * This uses commit() rather than apply() deliberately. apply() returns
-     * immediately and flushes on a background thread, so a true return would
-     * say nothing about whether the write survived. The tray-suppression path
-     * dismisses the bank's own notification on the strength of this return
-     * value, so it has to mean "written", not "queued to be written".
+     * One append for the whole batch, and the answer covers all of it.
+     *
+     * Keyed by securedKey, so a notification still pending from an earlier
+     * pass is updated rather than queued twice: a scan re-reads everything in
+     * the shade, and the queue should grow with alerts, not with passes.
      */
-    private boolean queueTransaction(JSONObject transaction) {
+    private boolean queueTransactions(java.util.List<Capture> batch) {
+        java.util.List<String> keys = new java.util.ArrayList<>(batch.size());
+        java.util.List<String> records = new java.util.ArrayList<>(batch.size());
+        for (Capture capture : batch) {
+            if (capture.transaction == null) continue;
+            keys.add(capture.securedKey);
+            records.add(capture.transaction.toString());
+        }
         try {
-            synchronized (QUEUE_LOCK) {
-                android.content.SharedPreferences prefs = getSharedPreferences("covault_prefs", 0);
-                JSONArray queue;
-                try {
-                    queue = new JSONArray(prefs.getString(PENDING_QUEUE_KEY, "[]"));
-                } catch (Exception e) {
-                    queue = new JSONArray();
-                }
-                queue.put(transaction);
-
-                // Drop the oldest entries if we're over the cap.
-                if (queue.length() > MAX_PENDING) {
-                    JSONArray trimmed = new JSONArray();
-                    for (int i = queue.length() - MAX_PENDING; i < queue.length(); i++) {
-                        trimmed.put(queue.get(i));
-                    }
-                    queue = trimmed;
-                }
-                return prefs.edit().putString(PENDING_QUEUE_KEY, queue.toString()).commit();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error queueing transaction", e);
+            if (journal(this).append(keys, records)) return true;
+        } catch (java.io.IOException e) {
+            Log.e(TAG, "Error opening the capture journal", e);
             return false;
         }
+        // Whatever failed may have left the file closed or cut short; the next
+        // capture reopens it, which repairs the tail.
+        Log.e(TAG, "Error queueing transaction");
+        closeCaptureStores();
+        return false;
     }
 
     /**
@@ -1897,11 +2948,11 @@ public class NotificationListener extends NotificationListenerService {
     }
 
     /**
-     * @return whether the notification was durably queued, and whether a
-     *         Covault notification is showing for it — the two preconditions
-     *         for dismissing the bank's own notification.
+     * The queued and broadcast form of one capture, or null if it cannot be
+     * built — an amount too large to be a number JSON will hold, say. Such a
+     * capture is neither queued nor announced, and its alert stays put.
      */
-    private CaptureResult broadcastTransaction(String sourceApp, Double amount, String vendor, String rawText, long postTime, boolean fromScan, boolean alreadySecured, boolean captureQuietly) {
+    private static JSONObject transactionFor(String sourceApp, Double amount, String vendor, String rawText, long postTime, boolean fromScan) {
         try {
             JSONObject transaction = new JSONObject();
             transaction.put("source_app", sourceApp);
@@ -1924,11 +2975,22 @@ public class NotificationListener extends NotificationListenerService {
             // skipped for a skip rule.
             transaction.put("capture_notification_id",
                 captureNotificationId(amount, vendor, rawText));
+            return transaction;
+        } catch (Exception e) {
+            Log.e(TAG, "Error building transaction", e);
+            return null;
+        }
+    }
 
-            // Persist first, so the transaction survives even if no receiver is
-            // listening right now (app closed/backgrounded).
-            boolean queued = queueTransaction(transaction);
-
+    /**
+     * @return whether the notification was durably queued, and whether a
+     *         Covault notification is showing for it — the two preconditions
+     *         for dismissing the bank's own notification.
+     */
+    private CaptureResult broadcastTransaction(JSONObject transaction, boolean queued, String sourceApp, Double amount, String vendor, String rawText, boolean fromScan, boolean alreadySecured, boolean captureQuietly) {
+        // Nothing could be written down for this one — see transactionFor.
+        if (transaction == null) return new CaptureResult(false, false);
+        try {
             // Tell the user immediately. A rescan re-walks the shade and would
             // otherwise re-notify for things already seen — but "seen" means
             // we actually told them once, not merely that we arrived via a
@@ -1944,18 +3006,12 @@ public class NotificationListener extends NotificationListenerService {
             // false, which is what keeps tray suppression from dismissing an
             // alert we never replaced.
             boolean notified = false;
+            long notifyStart = CaptureTimings.start();
             if (!captureQuietly && (!fromScan || !alreadySecured)) {
                 notified = notifyCaptured(amount, vendor, rawText);
+                CaptureTimings.record(this, CaptureTimings.NOTIFY, notifyStart);
             }
 
-            // Broadcast to the app
-            Intent intent = new Intent("com.covault.app.TRANSACTION_DETECTED");
-            intent.putExtra("transaction_data", transaction.toString());
-            intent.setPackage(getPackageName());
-            sendBroadcast(intent);
-
-            Log.i(TAG, "Broadcast transaction: " + transaction.toString());
-
             // One line that explains the whole capture, so a single logcat
             // filter answers "why did nothing happen?" without reading code.
             // `secured` is what gates tray suppression downstream, so print the
@@ -1978,4 +3034,23 @@ public class NotificationListener extends NotificationListenerService {
             return new CaptureResult(false, false);
         }
     }
+
+    /**
+     * Straight to the plugin when it is loaded; a broadcast only when it is
+     * not, or it failed to take the capture. See CaptureEvents. Called once
+     * the batch is committed; see secureCaptures.
+     */
+    private void handOver(JSONObject transaction) {
+        if (transaction == null) return;
+        try {
+            if (!CaptureEvents.publish(transaction)) {
+                Intent intent = new Intent("com.covault.app.TRANSACTION_DETECTED");
+                intent.putExtra("transaction_data", transaction.toString());
+                intent.setPackage(getPackageName());
+                sendBroadcast(intent);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error handing over transaction", e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,459 @@
+package com.covault.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * The capture notifications posted in the last window, for collapsing the
+ * same purchase announced twice: by the bank and a wallet app, or by one app
+ * re-posting its alert.
+ *
+ * This was a HashMap from dedup key to post time, which notifyCaptured walked
+ * end to end on every capture to prune, and cancelCaptureNotification walked
+ * again, re-hashing every key, to find the one entry for a notification id. It
+ * also lived in the service instance, so a restart inside the window forgot
+ * everything and posted the same purchase a second time.
+ *
+ * Here keys are 64-bit fingerprints (see FingerprintSet) in an open-addressed
+ * table, and a second table indexes them by notification id, so lookup, insert
+ * and cancel are each a hash and a probe. Expiry is a time wheel of one-second
+ * buckets spanning the window: each entry sits in the bucket for the second it
+ * was posted, and moving the clock on empties the buckets that fell out of the
+ * window, so an entry is reclaimed once rather than re-examined on every
+ * capture. Whether an entry is still inside the window is always decided by
+ * its exact post time; the wheel only decides when the memory is taken back.
+ *
+ * The optional mirror is a small fixed file of slots, written in place and
+ * never synced: it has to survive the process, which the page cache does, not
+ * the phone losing power, after which nothing is in the shade to double-post
+ * over anyway. A slot is reused once its capture has left the window or been
+ * withdrawn, so a window of up to MIRROR_SLOTS captures survives a restart
+ * whole; past that, live slots give way in turn. Sequence numbers say which
+ * slot was written last, since post times can tie or run backwards. A mirror
+ * that fails to write is closed and the cache carries on in memory:
+ * forgetting the window costs at worst a duplicate notification, and that is
+ * never worth missing one over.
+ *
+ *     header:  [magic:int][slots:int][reserved:long]
+ *     slot:    [fingerprint:long][postedAt:long][id:int][sequence:int][check:int]
+ *
+ * Not thread-safe; owned by the capture thread. See CaptureExecutor.
+ */
+final class RecentCaptures {
+
+    private static final int MAGIC = 0x43565231; // "CVR1"
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 28;
+    static final int MIRROR_SLOTS = 256;
+    private static final long BUCKET_MS = 1000L;
+
+    private final long windowMs;
+
+    // Entries, pooled. An entry is free when its fingerprint is 0.
+    private long[] fps;
+    private long[] postedAt;
+    private int[] ids;
+    private int[] bucketNext;
+    private int[] bucketPrev;
+    private int[] bucketOf;
+    private int[] idNext;
+    private int[] mirrorSlot;
+    private int free = -1;
+    private int used;
+    private int size;
+
+    /** fingerprint → entry. Open-addressed, linear probing; a 0 key is empty. */
+    private long[] fpKeys;
+    private int[] fpEntries;
+    /** notification id → first entry with that id, chained by idNext. -1 is empty. */
+    private int[] idKeys;
+    private int[] idHeads;
+    private int mask;
+
+    /** The wheel: per bucket, the first entry posted in that second. */
+    private final int[] buckets;
+    private long horizon = Long.MIN_VALUE;
+
+    private RandomAccessFile mirror;
+    private final int[] mirrorOwner = new int[MIRROR_SLOTS];
+    private int mirrorNext;
+    private int mirrorSequence;
+    private final byte[] slotBytes = new byte[SLOT_BYTES];
+    private final ByteBuffer slotBuffer = ByteBuffer.wrap(slotBytes);
+
+    private RecentCaptures(long windowMs) {
+        this.windowMs = windowMs;
+        this.buckets = new int[(int) (windowMs / BUCKET_MS) + 2];
+        java.util.Arrays.fill(buckets, -1);
+        java.util.Arrays.fill(mirrorOwner, -1);
+        allocate(64);
+    }
+
+    /** In memory only. */
+    static RecentCaptures inMemory(long windowMs) {
+        return new RecentCaptures(windowMs);
+    }
+
+    /**
+     * Mirrored to file, starting from whatever the file holds that is still
+     * inside the window at nowMs. Throws if the file cannot be opened; the
+     * caller falls back to inMemory.
+     */
+    static RecentCaptures open(File file, long windowMs, long nowMs) throws IOException {
+        RecentCaptures recent = new RecentCaptures(windowMs);
+        recent.load(file, nowMs);
+        return recent;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean mirrored() {
+        return mirror != null;
+    }
+
+    /** Was a notification for this key posted within the window? */
+    boolean contains(String key, long nowMs) {
+        advance(nowMs);
+        int e = find(FingerprintSet.fingerprint(key));
+        return e >= 0 && live(postedAt[e], nowMs);
+    }
+
+    /** Record a notification posted for this key, under this id, at nowMs. */
+    void add(String key, int id, long nowMs) {
+        advance(nowMs);
+        long fp = FingerprintSet.fingerprint(key);
+        int old = find(fp);
+        if (old >= 0) remove(old, true);
+        int e = insert(fp, id, nowMs);
+        writeMirror(e);
+    }
+
+    /** Forget every key posted under this notification id. */
+    void removeId(int id) {
+        int at = idIndex(id);
+        if (at < 0) return;
+        for (int e = idHeads[at]; e >= 0; ) {
+            int next = idNext[e];
+            remove(e, true);
+            // remove() may have shifted the id table; the chain itself is intact.
+            e = next;
+        }
+    }
+
+    private boolean live(long at, long nowMs) {
+        return Math.abs(nowMs - at) <= windowMs;
+    }
+
+    // ── Wheel ────────────────────────────────────────────────────────────
+
+    /**
+     * Move the wheel on to nowMs. A bucket is emptied as the clock reaches it
+     * again, a full turn after it was filled, by which time everything in it
+     * is older than the window. A clock that steps back does not turn it: new
+     * entries join the current bucket, and leave no earlier than they should.
+     */
+    private void advance(long nowMs) {
+        long tick = Math.floorDiv(nowMs, BUCKET_MS);
+        if (horizon == Long.MIN_VALUE) {
+            horizon = tick;
+            return;
+        }
+        if (tick <= horizon) return;
+        long steps = Math.min(tick - horizon, buckets.length);
+        for (long k = 1; k <= steps; k++) {
+            int b = (int) Math.floorMod(horizon + k, (long) buckets.length);
+            for (int e = buckets[b]; e >= 0; ) {
+                int next = bucketNext[e];
+                // Expired, not withdrawn: its mirror slot reads as expired too.
+                remove(e, false);
+                e = next;
+            }
+        }
+        horizon = tick;
+    }
+
+    private int bucketFor() {
+        return (int) Math.floorMod(horizon, (long) buckets.length);
+    }
+
+    // ── Entries ──────────────────────────────────────────────────────────
+
+    private int insert(long fp, int id, long at) {
+        if (free < 0 && used == fps.length) allocate(fps.length * 2);
+        int e;
+        if (free >= 0) {
+            e = free;
+            free = bucketNext[e];
+        } else {
+            e = used++;
+        }
+        fps[e] = fp;
+        postedAt[e] = at;
+        ids[e] = id;
+        mirrorSlot[e] = -1;
+
+        int b = bucketFor();
+        bucketOf[e] = b;
+        bucketPrev[e] = -1;
+        bucketNext[e] = buckets[b];
+        if (buckets[b] >= 0) bucketPrev[buckets[b]] = e;
+        buckets[b] = e;
+
+        putFp(fp, e);
+        linkId(id, e);
+        size++;
+        return e;
+    }
+
+    /** Take e out of the wheel and both indexes; clear its slot if it was withdrawn. */
+    private void remove(int e, boolean clearMirror) {
+        int b = bucketOf[e];
+        if (bucketPrev[e] >= 0) bucketNext[bucketPrev[e]] = bucketNext[e];
+        else buckets[b] = bucketNext[e];
+        if (bucketNext[e] >= 0) bucketPrev[bucketNext[e]] = bucketPrev[e];
+
+        removeFp(fps[e]);
+        unlinkId(ids[e], e);
+        int slot = mirrorSlot[e];
+        if (slot >= 0) {
+            mirrorOwner[slot] = -1;
+            if (clearMirror) clearMirror(slot);
+        }
+
+        fps[e] = 0;
+        bucketNext[e] = free;
+        free = e;
+        size--;
+    }
+
+    /** Grow the pool to capacity entries and rebuild both indexes to match. */
+    private void allocate(int capacity) {
+        int had = fps == null ? 0 : fps.length;
+        fps = grow(fps, capacity);
+        postedAt = grow(postedAt, capacity);
+        ids = grow(ids, capacity);
+        bucketNext = grow(bucketNext, capacity);
+        bucketPrev = grow(bucketPrev, capacity);
+        bucketOf = grow(bucketOf, capacity);
+        idNext = grow(idNext, capacity);
+        mirrorSlot = grow(mirrorSlot, capacity);
+
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        fpKeys = new long[tableSize];
+        fpEntries = new int[tableSize];
+        idKeys = new int[tableSize];
+        idHeads = new int[tableSize];
+        java.util.Arrays.fill(idHeads, -1);
+        mask = tableSize - 1;
+        for (int e = 0; e < had; e++) {
+            if (fps[e] == 0) continue;
+            putFp(fps[e], e);
+            linkId(ids[e], e);
+        }
+    }
+
+    private static long[] grow(long[] a, int n) {
+        return a == null ? new long[n] : java.util.Arrays.copyOf(a, n);
+    }
+
+    private static int[] grow(int[] a, int n) {
+        return a == null ? new int[n] : java.util.Arrays.copyOf(a, n);
+    }
+
+    // ── Fingerprint index ────────────────────────────────────────────────
+
+    private int fpHome(long fp) {
+        return (int) ((fp * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+    }
+
+    private int find(long fp) {
+        for (int i = fpHome(fp); fpKeys[i] != 0; i = (i + 1) & mask) {
+            if (fpKeys[i] == fp) return fpEntries[i];
+        }
+        return -1;
+    }
+
+    private void putFp(long fp, int e) {
+        int i = fpHome(fp);
+        while (fpKeys[i] != 0) i = (i + 1) & mask;
+        fpKeys[i] = fp;
+        fpEntries[i] = e;
+    }
+
+    /** Backward-shift deletion, as in FingerprintSet. */
+    private void removeFp(long fp) {
+        int i = fpHome(fp);
+        while (fpKeys[i] != fp) {
+            if (fpKeys[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & mask; fpKeys[j] != 0; j = (j + 1) & mask) {
+            int want = fpHome(fpKeys[j]);
+            boolean stays = hole <= j ? (hole < want && want <= j) : (hole < want || want <= j);
+            if (stays) continue;
+            fpKeys[hole] = fpKeys[j];
+            fpEntries[hole] = fpEntries[j];
+            hole = j;
+        }
+        fpKeys[hole] = 0;
+    }
+
+    // ── Id index ─────────────────────────────────────────────────────────
+    //
+    // Ids are String.hashCode()s, so two keys can share one; those entries
+    // are chained, and cancelling the id forgets both, as it always has.
+
+    private int idHome(int id) {
+        return (int) (((id & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+    }
+
+    private int idIndex(int id) {
+        for (int i = idHome(id); idHeads[i] >= 0; i = (i + 1) & mask) {
+            if (idKeys[i] == id) return i;
+        }
+        return -1;
+    }
+
+    private void linkId(int id, int e) {
+        int i = idIndex(id);
+        if (i >= 0) {
+            idNext[e] = idHeads[i];
+            idHeads[i] = e;
+            return;
+        }
+        i = idHome(id);
+        while (idHeads[i] >= 0) i = (i + 1) & mask;
+        idKeys[i] = id;
+        idHeads[i] = e;
+        idNext[e] = -1;
+    }
+
+    private void unlinkId(int id, int e) {
+        int i = idIndex(id);
+        if (i < 0) return;
+        if (idHeads[i] == e) {
+            idHeads[i] = idNext[e];
+        } else {
+            int p = idHeads[i];
+            while (p >= 0 && idNext[p] != e) p = idNext[p];
+            if (p >= 0) idNext[p] = idNext[e];
+        }
+        if (idHeads[i] >= 0) return;
+        // Last entry for this id: take the key out, shifting back as for fingerprints.
+        int hole = i;
+        for (int j = (hole + 1) & mask; idHeads[j] >= 0; j = (j + 1) & mask) {
+            int want = idHome(idKeys[j]);
+            boolean stays = hole <= j ? (hole < want && want <= j) : (hole < want || want <= j);
+            if (stays) continue;
+            idKeys[hole] = idKeys[j];
+            idHeads[hole] = idHeads[j];
+            hole = j;
+        }
+        idHeads[hole] = -1;
+    }
+
+    // ── Mirror ───────────────────────────────────────────────────────────
+
+    private static int check(long fp, long at, int id, int sequence) {
+        long h = fp ^ (at * 0x9E3779B97F4A7C15L) ^ ((long) id << 17) ^ ((long) sequence << 41) ^ MAGIC;
+        h ^= h >>> 29;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 32;
+        return (int) h;
+    }
+
+    private void writeMirror(int e) {
+        if (mirror == null) return;
+        // The next slot not holding a live capture; the pointer's own if none.
+        int slot = mirrorNext;
+        for (int tries = 0; tries < MIRROR_SLOTS && mirrorOwner[slot] >= 0; tries++) {
+            slot = (slot + 1) % MIRROR_SLOTS;
+        }
+        if (mirrorOwner[slot] >= 0) slot = mirrorNext;
+        mirrorNext = (slot + 1) % MIRROR_SLOTS;
+        int previous = mirrorOwner[slot];
+        if (previous >= 0) mirrorSlot[previous] = -1;
+        mirrorOwner[slot] = e;
+        mirrorSlot[e] = slot;
+        writeSlot(slot, fps[e], postedAt[e], ids[e], mirrorSequence++);
+    }
+
+    private void clearMirror(int slot) {
+        if (mirror == null) return;
+        writeSlot(slot, 0, 0, 0, 0);
+    }
+
+    private void writeSlot(int slot, long fp, long at, int id, int sequence) {
+        ByteBuffer buf = slotBuffer;
+        buf.clear();
+        buf.putLong(fp).putLong(at).putInt(id).putInt(sequence)
+            .putInt(fp == 0 ? 0 : check(fp, at, id, sequence));
+        try {
+            mirror.seek(HEADER_BYTES + (long) slot * SLOT_BYTES);
+            mirror.write(slotBytes);
+        } catch (IOException e) {
+            closeMirror();
+        }
+    }
+
+    private void closeMirror() {
+        try {
+            mirror.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+        mirror = null;
+    }
+
+    private void load(File file, long nowMs) throws IOException {
+        mirror = new RandomAccessFile(file, "rw");
+        long newest = -1;
+        int newestSlot = -1;
+        if (mirror.length() == HEADER_BYTES + (long) MIRROR_SLOTS * SLOT_BYTES) {
+            byte[] all = new byte[(int) mirror.length()];
+            mirror.seek(0);
+            mirror.readFully(all);
+            ByteBuffer in = ByteBuffer.wrap(all);
+            if (in.getInt() == MAGIC && in.getInt() == MIRROR_SLOTS) {
+                advance(nowMs);
+                for (int slot = 0; slot < MIRROR_SLOTS; slot++) {
+                    in.position(HEADER_BYTES + slot * SLOT_BYTES);
+                    long fp = in.getLong();
+                    long at = in.getLong();
+                    int id = in.getInt();
+                    int sequence = in.getInt();
+                    int check = in.getInt();
+                    if (fp == 0 || check != check(fp, at, id, sequence)) continue;
+                    // Written last, whether or not still live: the next write goes after it.
+                    if ((sequence & 0xFFFFFFFFL) > newest) {
+                        newest = sequence & 0xFFFFFFFFL;
+                        newestSlot = slot;
+                    }
+                    if (!live(at, nowMs)) continue;
+                    int old = find(fp);
+                    if (old >= 0) {
+                        if (postedAt[old] >= at) continue;
+                        remove(old, false);
+                    }
+                    int e = insert(fp, id, at);
+                    mirrorSlot[e] = slot;
+                    mirrorOwner[slot] = e;
+                }
+                mirrorNext = (newestSlot + 1) % MIRROR_SLOTS;
+                mirrorSequence = (int) (newest + 1);
+                return;
+            }
+        }
+        // New or foreign: lay it out afresh.
+        mirror.setLength(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(MIRROR_SLOTS).putLong(0);
+        mirror.write(header.array());
+        mirror.setLength(HEADER_BYTES + (long) MIRROR_SLOTS * SLOT_BYTES);
+    }
+}
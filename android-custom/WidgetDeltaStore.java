@@ -43,16 +43,30 @@ final class WidgetDeltaStore {
 
     private WidgetDeltaStore() {}
 
-    private static final String PREFS = "covault_prefs";
     static final String SNAPSHOT_KEY = "widget_snapshot";
     static final String DELTAS_KEY = "widget_deltas";
     static final String RULES_KEY = "widget_rules";
+    static final String AUTO_FILE_KEY = "auto_accept_known_vendors";
 
     /** Enough for a very heavy month between app launches. */
     private static final int MAX_DELTAS = 100;
 
     private static SharedPreferences prefs(Context context) {
-        return context.getSharedPreferences(PREFS, 0);
+        return CovaultPrefs.widget(context);
+    }
+
+    /**
+     * Deltas are written on every capture, so they live with the capture state
+     * rather than beside the snapshot, where each one would rewrite it. Two
+     * files cannot change together, so writeSnapshot orders its writes: the
+     * snapshot first, and only once it is on disk the deltas it supersedes.
+     * A process killed in between leaves the new snapshot beside the old
+     * deltas, which mergeInto already ignores for being older than it — the
+     * same state the widget reads whenever a capture lands after a snapshot.
+     * The other order could leave the old snapshot with its deltas gone.
+     */
+    private static SharedPreferences deltas(Context context) {
+        return CovaultPrefs.capture(context);
     }
 
     // ── Snapshot ──────────────────────────────────────────────────────────
@@ -63,15 +77,17 @@ final class WidgetDeltaStore {
         if (rulesJson != null) editor.putString(RULES_KEY, rulesJson);
         // Mirrored so willAwaitReview can tell whether a capture made with the
         // app closed will be auto-filed or will wait in Review.
-        editor.putBoolean("auto_accept_known_vendors", autoFile);
-        // A fresh snapshot supersedes every optimistic delta before it. Dropping
-        // them here rather than filtering at render time keeps the store from
-        // growing without bound on a device the app is rarely opened on.
-        editor.remove(DELTAS_KEY);
-        // And it supersedes any category the user had opened on the donut. See
-        // CovaultWidgetProvider.clearFocus for why that cannot simply stay.
+        editor.putBoolean(AUTO_FILE_KEY, autoFile);
+        // A fresh snapshot supersedes any category the user had opened on the
+        // donut. See CovaultWidgetProvider.clearFocus for why that cannot
+        // simply stay.
         CovaultWidgetProvider.clearFocus(context);
-        editor.commit();
+        if (!editor.commit()) return;
+        // And every optimistic delta before it. Dropping them here rather than
+        // filtering at render time keeps the store from growing without bound
+        // on a device the app is rarely opened on. After the commit, never
+        // before: see deltas().
+        deltas(context).edit().remove(DELTAS_KEY).apply();
     }
 
     static JSONObject readSnapshot(Context context) {
@@ -108,7 +124,11 @@ final class WidgetDeltaStore {
 
             while (deltas.length() > MAX_DELTAS) deltas.remove(0);
 
-            prefs(context).edit().putString(DELTAS_KEY, deltas.toString()).commit();
+            // apply(), not commit(): a delta is cosmetic (point 2 above), and
+            // the redraw that follows reads the in-memory copy apply() updates
+            // at once. A capture's only synchronous disk write is its journal
+            // commit; this one lands behind it.
+            deltas(context).edit().putString(DELTAS_KEY, deltas.toString()).apply();
             return true;
         } catch (Exception e) {
             return false;
@@ -117,7 +137,7 @@ final class WidgetDeltaStore {
 
     private static JSONArray readDeltas(Context context) {
         try {
-            return new JSONArray(prefs(context).getString(DELTAS_KEY, "[]"));
+            return new JSONArray(deltas(context).getString(DELTAS_KEY, "[]"));
         } catch (Exception e) {
             return new JSONArray();
         }
@@ -314,7 +334,7 @@ final class WidgetDeltaStore {
      */
     static boolean willAwaitReview(Context context, String vendor) {
         try {
-            boolean autoFile = prefs(context).getBoolean("auto_accept_known_vendors", false);
+            boolean autoFile = prefs(context).getBoolean(AUTO_FILE_KEY, false);
             if (!autoFile) return true;
             Match match = matchFor(context, vendor);
             if ("Other".equals(match.category)) return true;
@@ -15,6 +15,7 @@ import {
   canPostCaptureNotifications,
   openNotificationSettings,
   getCaptureDiagnostics,
+  getCaptureTimings,
 } from '../../../lib/covaultNotification';
 import { requestPostNotifications } from '../../../lib/appNotifications';
 import {
@@ -27,6 +28,11 @@ import {
   type CaptureOutcome,
   type CaptureOutcomeCode,
 } from '../../../lib/captureOutcome';
+import {
+  describeCaptureStage,
+  formatStageMillis,
+  type CaptureStageTiming,
+} from '../../../lib/captureTimings';
 
 
 interface NotificationSettingsSectionProps {
@@ -70,6 +76,7 @@ const NotificationSettingsSection: React.FC<NotificationSettingsSectionProps> =
   const [fixingCaptureNotifs, setFixingCaptureNotifs] = useState(false);
   // What actually happened to the last few bank alerts. Newest first.
   const [captureOutcomes, setCaptureOutcomes] = useState<CaptureOutcome[]>([]);
+  const [captureTimings, setCaptureTimings] = useState<CaptureStageTiming[]>([]);
 
   // Initialize plugin
   useEffect(() => {
@@ -110,6 +117,7 @@ const NotificationSettingsSection: React.FC<NotificationSettingsSectionProps> =
       setHideBankNotifs(await getHideBankNotifications(plugin));
       setCaptureNotifsAllowed(await canPostCaptureNotifications(plugin));
       setCaptureOutcomes(await getCaptureDiagnostics(plugin));
+      setCaptureTimings(await getCaptureTimings(plugin));
 
       if (granted) {
         const { apps: saved } = await plugin.getMonitoredApps();
@@ -504,6 +512,30 @@ const NotificationSettingsSection: React.FC<NotificationSettingsSectionProps> =
               ? 'Covault dismisses a bank alert only after it has saved the purchase and posted its own notification. If either step fails — or you have turned Covault notifications off in Android settings — the bank alert is left alone. Alerts already in your tray are never touched.'
               : 'When on, a bank alert is dismissed from your tray once Covault has captured the purchase and replaced it with its own notification. Nothing is dismissed until the purchase is saved.'}
           </p>
+
+          {captureTimings.length > 0 && (
+            <details className="mt-2">
+              <summary className="cursor-pointer select-none text-[10px] font-semibold text-slate-500 dark:text-slate-400">
+                Capture timings
+              </summary>
+              <ul className="mt-1.5 space-y-1">
+                {captureTimings.map((timing) => (
+                  <li
+                    key={timing.stage}
+                    className="flex items-baseline justify-between gap-2 text-[10px] leading-relaxed text-slate-500 dark:text-slate-400"
+                  >
+                    <span>{describeCaptureStage(timing.stage)}</span>
+                    <span
+                      className="flex-shrink-0 tabular-nums"
+                      title={`${timing.count} captures · p99 ${formatStageMillis(timing.p99)} · max ${formatStageMillis(timing.max)}`}
+                    >
+                      {formatStageMillis(timing.p50)} · p95 {formatStageMillis(timing.p95)}
+                    </span>
+                  </li>
+                ))}
+              </ul>
+            </details>
+          )}
         </div>
       )}
 
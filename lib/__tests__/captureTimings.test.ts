@@ -0,0 +1,84 @@
+import { describe, it, expect } from 'vitest';
+import { readFileSync } from 'fs';
+import { resolve } from 'path';
+import {
+  parseCaptureTimings,
+  describeCaptureStage,
+  formatStageMillis,
+  type CaptureStage,
+} from '../captureTimings';
+
+/**
+ * The native listener keeps a latency histogram per capture stage and hands a
+ * summary of each to the settings screen. This is the layer between them: it
+ * must never throw on what arrives, and never report a stage out of order.
+ */
+
+const ALL: CaptureStage[] = [
+  'extract',
+  'checks',
+  'queue',
+  'notify',
+  'commit',
+  'dismiss',
+  'verify',
+  'widget',
+];
+
+describe('parseCaptureTimings', () => {
+  it('reads what the native side writes, in pipeline order', () => {
+    const raw = JSON.stringify([
+      { stage: 'notify', count: 3, p50: 4.2, p95: 9, p99: 9, max: 9.1 },
+      { stage: 'extract', count: 3, p50: 0.05, p95: 0.1, p99: 0.1, max: 0.12 },
+    ]);
+    const parsed = parseCaptureTimings(raw);
+    expect(parsed.map((t) => t.stage)).toEqual(['extract', 'notify']);
+    expect(parsed[1]).toEqual({ stage: 'notify', count: 3, p50: 4.2, p95: 9, p99: 9, max: 9.1 });
+  });
+
+  it('drops stages it does not recognise and rows with no samples', () => {
+    const parsed = parseCaptureTimings([
+      { stage: 'something_new', count: 5, p50: 1 },
+      { stage: 'queue', count: 0, p50: 1 },
+      { stage: 'commit', count: 2, p50: 3 },
+    ]);
+    expect(parsed.map((t) => t.stage)).toEqual(['commit']);
+  });
+
+  it('never throws on garbage', () => {
+    expect(parseCaptureTimings('not json')).toEqual([]);
+    expect(parseCaptureTimings(null)).toEqual([]);
+    expect(parseCaptureTimings({ stage: 'queue' })).toEqual([]);
+    expect(parseCaptureTimings([null, 1, 'x'])).toEqual([]);
+  });
+});
+
+describe('describeCaptureStage', () => {
+  it('has words for every stage', () => {
+    for (const stage of ALL) expect(describeCaptureStage(stage)).toBeTruthy();
+  });
+});
+
+describe('formatStageMillis', () => {
+  it('keeps short stages readable', () => {
+    expect(formatStageMillis(0.42)).toBe('0.4 ms');
+    expect(formatStageMillis(12.4)).toBe('12 ms');
+    expect(formatStageMillis(1340)).toBe('1.3 s');
+  });
+});
+
+describe('native stage names', () => {
+  // The names are matched as strings across the bridge; a stage renamed on
+  // one side only would silently vanish from the settings screen.
+  const src = readFileSync(resolve(__dirname, '../../android-custom/CaptureTimings.java'), 'utf8');
+
+  it('match the ones this side knows, in the same order', () => {
+    const names = src.match(/NAMES = \{([^}]*)\}/)?.[1] ?? '';
+    expect(names.match(/"([a-z]+)"/g)?.map((n) => n.slice(1, -1))).toEqual(ALL);
+  });
+
+  it('are recorded without allocating', () => {
+    const record = src.slice(src.indexOf('static void record('), src.indexOf('static void flush('));
+    expect(record).not.toMatch(/\bnew\b/);
+  });
+});
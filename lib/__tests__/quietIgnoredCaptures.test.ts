@@ -129,16 +129,22 @@ describe('the native and web rule matchers', () => {
     // A different alert is still a different alert on both sides.
     expect(matchesRule('Your payment is due', r)).toBe(false);
 
+    // Natively the rules are compiled into sets, so "equals" is a lookup of
+    // the trimmed text among the exact patterns, and of its shape among theirs.
     expect(LISTENER_JAVA).toMatch(/String trimmed = text\.trim\(\);/);
-    expect(LISTENER_JAVA).toMatch(/trimmed\.equals\(pattern\)/);
-    expect(LISTENER_JAVA).toMatch(/textShape\.equals\(patternShape\)/);
+    expect(LISTENER_JAVA).toMatch(/exactText\.add\(pattern\)/);
+    expect(LISTENER_JAVA).toMatch(/exactText\.contains\(trimmed\)/);
+    expect(LISTENER_JAVA).toMatch(/exactShapes\.contains\(textShape\)/);
   });
 
   it('agree that `contains` ignores case', () => {
     const r = rule({ pattern: 'Reward Points', pattern_type: 'contains' });
     expect(matchesRule('You earned reward points this month', r)).toBe(true);
 
-    expect(LISTENER_JAVA).toMatch(/lower\.contains\(pattern\.toLowerCase\(\)\)/);
+    // Both sides lowered before the compiled contains rules are searched.
+    expect(LISTENER_JAVA).toMatch(/lowered\.add\(pattern\.toLowerCase\(\)\)/);
+    expect(LISTENER_JAVA).toMatch(/String lower = trimmed\.toLowerCase\(\);/);
+    expect(LISTENER_JAVA).toMatch(/containsText\.containsAny\(lower\)/);
   });
 
   it('agree that an empty pattern matches nothing', () => {
@@ -157,25 +163,44 @@ describe('the native listener', () => {
     expect(LISTENER_JAVA).toMatch(
       /if \(!captureQuietly && \(!fromScan \|\| !alreadySecured\)\) \{\s*\n\s*notified = notifyCaptured/,
     );
-    expect(LISTENER_JAVA).toMatch(/ignoredByUser \|\| knownRecurring \|\| notAPurchase\);/);
+    expect(LISTENER_JAVA).toMatch(/return ignoredByUser \|\| knownRecurring \|\| notAPurchase;/);
+    expect(LISTENER_JAVA).toMatch(/capture\.alreadySecured,\s*\n\s*capture\.quiet\(\)\);/);
   });
 
   it('still captures it, so a bad rule can only cost a notification', () => {
     // The queue write and the broadcast are unconditional — only the post is
     // gated. Reversing that would let one over-broad `contains` rule swallow
     // real purchases silently.
+    // Captures are secured a batch at a time: the whole batch is queued
+    // before any of it is announced.
+    const secure = LISTENER_JAVA.slice(
+      LISTENER_JAVA.indexOf('private void secureCaptures('),
+    );
+    const queueLine = secure.indexOf('boolean queued = queueTransactions(batch);');
+    const broadcastCall = secure.indexOf('capture.result = broadcastTransaction(');
     const broadcast = LISTENER_JAVA.slice(
       LISTENER_JAVA.indexOf('private CaptureResult broadcastTransaction'),
     );
-    const queueLine = broadcast.indexOf('boolean queued = queueTransaction(transaction);');
     const notifyLine = broadcast.indexOf('notified = notifyCaptured(');
     const sendLine = broadcast.indexOf('sendBroadcast(intent);');
     expect(queueLine).toBeGreaterThan(-1);
     expect(sendLine).toBeGreaterThan(-1);
     // persist → notify → broadcast; the ignore check sits inside the notify
     // step alone.
-    expect(queueLine).toBeLessThan(notifyLine);
+    expect(queueLine).toBeLessThan(broadcastCall);
+    expect(notifyLine).toBeGreaterThan(-1);
     expect(notifyLine).toBeLessThan(sendLine);
+    // Handed to the plugin in-process when it is loaded, broadcast only when
+    // it is not — either way after the notify step.
+    const publishLine = broadcast.indexOf('CaptureEvents.publish(transaction)');
+    expect(publishLine).toBeGreaterThan(notifyLine);
+    expect(publishLine).toBeLessThan(sendLine);
+    // And only once the batch is committed, so the plugin is never handed a
+    // capture the journal could still lose.
+    const commitLine = secure.indexOf('commitCaptures(secured)');
+    const handOverLine = secure.indexOf('handOver(capture.transaction);');
+    expect(commitLine).toBeGreaterThan(broadcastCall);
+    expect(handOverLine).toBeGreaterThan(commitLine);
   });
 
   it('will not dismiss a bank alert it never replaced', () => {
@@ -206,7 +231,7 @@ describe('the native listener', () => {
       LISTENER_JAVA.indexOf('static void cancelCaptureNotification'),
     );
     expect(cancel).toMatch(/nm\.cancel\(id\)/);
-    expect(cancel).toMatch(/recentCaptureNotifications/);
+    expect(cancel).toMatch(/recentCaptures\(.*\)\.removeId\(id\)/);
   });
 
   it('is reachable from the web layer through the plugin', () => {
@@ -138,6 +138,50 @@ describe('the two non-purchase lists', () => {
   });
 });
 
+/**
+ * The words the listener requires before it runs each pattern at all — one
+ * row per pattern, each row a list of slots that must all be filled. See
+ * NON_PURCHASE_ANCHORS in NotificationListener.java.
+ */
+function nativeAnchorRows(): string[][][] {
+  const body = block(LISTENER_JAVA, 'NON_PURCHASE_ANCHORS');
+  const rows: string[][][] = [];
+  const row = /\{((?:\s*\{[^{}]*\},?)+)\s*\}/g;
+  let match: RegExpExecArray | null;
+  while ((match = row.exec(body)) !== null) {
+    const slots = [...match[1].matchAll(/\{([^{}]*)\}/g)].map((slot) =>
+      [...slot[1].matchAll(/"([^"]*)"/g)].map((word) => word[1]),
+    );
+    rows.push(slots);
+  }
+  return rows;
+}
+
+describe('the native prefilter', () => {
+  it('has one row of anchor words per pattern', () => {
+    expect(nativeAnchorRows().length).toBe(nativePatternSources().length);
+  });
+
+  /**
+   * A pattern whose anchors are absent is never run, so a row that is not a
+   * necessary condition for its pattern would bring back the announcement
+   * this file exists to prevent.
+   */
+  it.each(NOT_PURCHASES)('runs every pattern that matches %s', (text) => {
+    const rows = nativeAnchorRows();
+    const lower = text.toLowerCase();
+    nativePatterns().forEach((pattern, i) => {
+      if (!pattern.test(text)) return;
+      for (const slot of rows[i]) {
+        expect(
+          slot.some((word) => lower.includes(word)),
+          `pattern ${i} matches but none of [${slot.join(', ')}] is in the text`,
+        ).toBe(true);
+      }
+    });
+  });
+});
+
 describe('what the listener stays quiet about', () => {
   it('recognises the alert that started this — a price alert with a dollar amount', () => {
     expect(nativeWouldStayQuiet(CRYPTO_ALERT)).toBe(true);
@@ -165,15 +209,20 @@ describe('what still announces itself', () => {
 
 describe('a quiet capture is still a capture', () => {
   it('withholds only the notification, never the queue write or the broadcast', () => {
+    const secure = LISTENER_JAVA.slice(
+      LISTENER_JAVA.indexOf('private void secureCaptures('),
+    );
+    const queued = secure.indexOf('boolean queued = queueTransactions(batch);');
+    const handOver = secure.indexOf('capture.result = broadcastTransaction(');
     const body = LISTENER_JAVA.slice(
       LISTENER_JAVA.indexOf('private CaptureResult broadcastTransaction('),
     );
-    const queued = body.indexOf('boolean queued = queueTransaction(transaction);');
     const guard = body.indexOf('if (!captureQuietly');
     const broadcast = body.indexOf('sendBroadcast(intent);');
 
     expect(queued, 'the durable queue write should still happen').toBeGreaterThan(-1);
-    expect(guard, 'only the notification should be behind the quiet flag').toBeGreaterThan(queued);
+    expect(handOver, 'the queue write should come before anything is announced').toBeGreaterThan(queued);
+    expect(guard, 'only the notification should be behind the quiet flag').toBeGreaterThan(-1);
     expect(broadcast, 'the pipeline should still be handed the capture').toBeGreaterThan(guard);
   });
 
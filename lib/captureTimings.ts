@@ -0,0 +1,111 @@
+/**
+ * How long each stage of a native capture takes on this phone.
+ *
+ * The listener keeps a histogram per stage (see CaptureTimings.java) and hands
+ * over a summary of each. This validates it and says what the stages are, so
+ * "Covault is slow to notice a purchase" can be narrowed to the step that is
+ * slow rather than guessed at.
+ */
+export type CaptureStage =
+  | 'extract'
+  | 'checks'
+  | 'queue'
+  | 'notify'
+  | 'commit'
+  | 'dismiss'
+  | 'verify'
+  | 'widget';
+
+/** In the order a capture goes through them. */
+const STAGES: readonly CaptureStage[] = [
+  'extract',
+  'checks',
+  'queue',
+  'notify',
+  'commit',
+  'dismiss',
+  'verify',
+  'widget',
+];
+
+export interface CaptureStageTiming {
+  stage: CaptureStage;
+  /** Samples behind the figures; recent captures, not every one since install. */
+  count: number;
+  /** Milliseconds. */
+  p50: number;
+  p95: number;
+  p99: number;
+  max: number;
+}
+
+/**
+ * Parse what the native side handed over, in pipeline order, dropping
+ * anything malformed — a diagnostic that throws takes down the screen it was
+ * meant to explain. A stage this build has never heard of is skipped.
+ */
+export function parseCaptureTimings(raw: unknown): CaptureStageTiming[] {
+  let rows: unknown;
+  if (typeof raw === 'string') {
+    try {
+      rows = JSON.parse(raw);
+    } catch {
+      return [];
+    }
+  } else {
+    rows = raw;
+  }
+  if (!Array.isArray(rows)) return [];
+
+  const byStage = new Map<CaptureStage, CaptureStageTiming>();
+  for (const row of rows) {
+    if (!row || typeof row !== 'object') continue;
+    const entry = row as Record<string, unknown>;
+    const stage = entry.stage;
+    if (typeof stage !== 'string' || !STAGES.includes(stage as CaptureStage)) continue;
+    const count = finite(entry.count);
+    if (count === null || count <= 0) continue;
+    const p50 = finite(entry.p50) ?? 0;
+    const p95 = finite(entry.p95) ?? p50;
+    const p99 = finite(entry.p99) ?? p95;
+    const max = finite(entry.max) ?? p99;
+    byStage.set(stage as CaptureStage, { stage: stage as CaptureStage, count, p50, p95, p99, max });
+  }
+  return STAGES.flatMap((stage) => {
+    const timing = byStage.get(stage);
+    return timing ? [timing] : [];
+  });
+}
+
+function finite(value: unknown): number | null {
+  return typeof value === 'number' && Number.isFinite(value) ? value : null;
+}
+
+/** What the stage is, in the user's terms. */
+export function describeCaptureStage(stage: CaptureStage): string {
+  switch (stage) {
+    case 'extract':
+      return 'Reading the amount and vendor';
+    case 'checks':
+      return 'Checking your rules';
+    case 'queue':
+      return 'Saving the purchase';
+    case 'notify':
+      return 'Posting the Covault notification';
+    case 'commit':
+      return 'Writing it to storage';
+    case 'dismiss':
+      return 'Dismissing the bank alert';
+    case 'verify':
+      return 'Checking the alert went';
+    case 'widget':
+      return 'Updating the widget';
+  }
+}
+
+/** "0.4 ms", "12 ms", "1.3 s". */
+export function formatStageMillis(ms: number): string {
+  if (ms >= 1000) return `${(ms / 1000).toFixed(1)} s`;
+  if (ms >= 10) return `${Math.round(ms)} ms`;
+  return `${ms.toFixed(1)} ms`;
+}
@@ -2,6 +2,7 @@
 import { log } from './log';
 import { Capacitor, registerPlugin } from '@capacitor/core';
 import { parseCaptureOutcomes, type CaptureOutcome } from './captureOutcome';
+import { parseCaptureTimings, type CaptureStageTiming } from './captureTimings';
 
 export interface TransactionDetectedEvent {
   /**
@@ -168,6 +169,13 @@ export interface CovaultNotificationPlugin {
    */
   getCaptureDiagnostics(): Promise<{ entries: string }>;
 
+  /**
+   * How long each stage of a capture has been taking, as a JSON array string.
+   *
+   * Prefer the `getCaptureTimings` helper below, which parses and validates it.
+   */
+  getCaptureTimings(): Promise<{ stages: string }>;
+
   /**
    * Take the destination of a tapped notification and clear it, or '' if the
    * app was opened normally. Use the `consumePendingRoute` helper below.
@@ -469,6 +477,26 @@ export async function getCaptureDiagnostics(
   }
 }
 
+/**
+ * How long each stage of a capture has been taking on this phone, in the order
+ * a capture goes through them.
+ *
+ * Empty on web, on an APK built before the native method existed, and before
+ * anything has been captured.
+ */
+export async function getCaptureTimings(
+  plugin: CovaultNotificationPlugin | null = covaultNotification,
+): Promise<CaptureStageTiming[]> {
+  if (!plugin) return [];
+  try {
+    const { stages } = await plugin.getCaptureTimings();
+    return parseCaptureTimings(stages);
+  } catch (e) {
+    log.debug('[covaultNotification] getCaptureTimings unavailable:', e);
+    return [];
+  }
+}
+
 /**
  * Destinations a tapped notification or widget can ask the app to open.
  *
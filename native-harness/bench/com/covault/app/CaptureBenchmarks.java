@@ -0,0 +1,248 @@
+package com.covault.app;
+
+import android.content.Context;
+
+import covault.shim.Device;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU cost of each function on the capture hot path, one at a time.
+ *
+ * CaptureReplay says what a whole alert costs; this says which part of it, and
+ * how each part grows with what the user has accumulated — a thousand skip
+ * rules, five hundred recurring charges, a month of widget deltas. Preference
+ * stores are the in-memory stand-in, so no number here includes a disk.
+ *
+ * Warm-up, measurement and forks are fixed here rather than left to the
+ * command line, so two runs of `scripts/native-harness.sh bench` measure the
+ * same thing and bench-compare can line them up. See native-harness/README.md.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureBenchmarks {
+
+    static final String SHORT_ALERT = "BMO You spent $12.45 at TIM HORTONS";
+
+    /** A bigText alert: what the listener reads when a bank expands its notification. */
+    static final String LONG_ALERT = "Credit Card Transaction Alert A transaction in the amount of $394.60 "
+        + "at COSTCO WHOLESALE #552 was approved on your card ending in 6602 on Aug 21 at 6:24 PM. "
+        + "If you don't recognize this transaction, call us right away at 1-800-555-0100 or lock your "
+        + "card in the app. Your available credit is $4,105.40 and your current balance is $1,894.60. "
+        + "🛒 Tap to view details, dispute a charge, or update your alert preferences.";
+
+    static Context freshDevice() throws Exception {
+        File dir = Files.createTempDirectory("covault-bench").toFile();
+        dir.deleteOnExit();
+        Device.reset(dir, false);
+        return new Context();
+    }
+
+    // ── Alert text ───────────────────────────────────────────────────────
+
+    @State(Scope.Benchmark)
+    public static class Alert {
+        @Param({"short", "long"})
+        public String length;
+
+        String text;
+
+        @Setup
+        public void setUp() {
+            text = "short".equals(length) ? SHORT_ALERT : LONG_ALERT;
+        }
+    }
+
+    @Benchmark
+    public String shapeOf(Alert alert) {
+        return NotificationListener.shapeOf(alert.text);
+    }
+
+    @Benchmark
+    public boolean looksNonFinancial(Alert alert) {
+        return NotificationListener.looksNonFinancial(alert.text);
+    }
+
+    @Benchmark
+    public Double extractAmount(Alert alert) {
+        return NotificationListener.extractAmount(alert.text);
+    }
+
+    @Benchmark
+    public String extractVendor(Alert alert) {
+        return NotificationListener.extractVendor(alert.text);
+    }
+
+    @Benchmark
+    public String stripEmoji(Alert alert) {
+        return NotificationListener.stripEmoji(alert.text);
+    }
+
+    // ── Skip rules ───────────────────────────────────────────────────────
+
+    @State(Scope.Benchmark)
+    public static class SkipRules {
+        @Param({"10", "100", "1000"})
+        public int rules;
+
+        Context context;
+
+        /**
+         * Half exact, half contains, each carrying a figure the way a rule
+         * made from a real alert does, and none matching the alert: the path
+         * every ordinary purchase takes.
+         */
+        @Setup
+        public void setUp() throws Exception {
+            context = freshDevice();
+            JSONArray list = new JSONArray();
+            for (int i = 0; i < rules; i++) {
+                JSONObject rule = new JSONObject();
+                boolean contains = i % 2 == 1;
+                rule.put("pattern", contains
+                    ? "promo code SAVE" + i
+                    : String.format(Locale.US, "Price alert %d is trading at $%d.%02d", i, 100 + i, i % 100));
+                rule.put("pattern_type", contains ? "contains" : "exact");
+                list.put(rule);
+            }
+            NotificationListener.saveSkipRules(context, list.toString());
+        }
+    }
+
+    @Benchmark
+    public boolean matchesSkipRule(SkipRules state) {
+        return NotificationListener.matchesSkipRule(state.context, SHORT_ALERT);
+    }
+
+    // ── Recurring charges ────────────────────────────────────────────────
+
+    @State(Scope.Benchmark)
+    public static class Recurring {
+        @Param({"5", "50", "500"})
+        public int charges;
+
+        Context context;
+
+        /** The alert's amount is billed by one charge, at another merchant. */
+        @Setup
+        public void setUp() throws Exception {
+            context = freshDevice();
+            JSONArray list = new JSONArray();
+            for (int i = 0; i < charges; i++) {
+                JSONObject charge = new JSONObject();
+                charge.put("amount", i == 0 ? 12.45 : 5 + i * 1.01);
+                charge.put("vendor", "Subscription Service " + i);
+                list.put(charge);
+            }
+            NotificationListener.saveRecurringCharges(context, list.toString());
+        }
+    }
+
+    @Benchmark
+    public boolean matchesRecurringCharge(Recurring state) {
+        return NotificationListener.matchesRecurringCharge(state.context, 12.45, SHORT_ALERT);
+    }
+
+    // ── Widget ───────────────────────────────────────────────────────────
+
+    @State(Scope.Benchmark)
+    public static class VendorRules {
+        @Param({"10", "100", "1000"})
+        public int rules;
+
+        Context context;
+
+        /** Exact, prefix and contains rules; the vendor matches none of them. */
+        @Setup
+        public void setUp() throws Exception {
+            context = freshDevice();
+            String[] types = {"exact", "prefix", "contains"};
+            JSONArray list = new JSONArray();
+            for (int i = 0; i < rules; i++) {
+                JSONObject rule = new JSONObject();
+                rule.put("matchKey", "merchant number " + i);
+                rule.put("matchType", types[i % types.length]);
+                rule.put("category", "Leisure");
+                list.put(rule);
+            }
+            WidgetDeltaStore.writeSnapshot(context, snapshot(System.currentTimeMillis() - 60_000L),
+                list.toString(), false);
+        }
+    }
+
+    @Benchmark
+    public WidgetDeltaStore.Match matchFor(VendorRules state) {
+        return WidgetDeltaStore.matchFor(state.context, "TIM HORTONS");
+    }
+
+    @State(Scope.Benchmark)
+    public static class Deltas {
+        @Param({"1", "50", "100"})
+        public int deltas;
+
+        Context context;
+
+        @Setup
+        public void setUp() throws Exception {
+            context = freshDevice();
+            long now = System.currentTimeMillis();
+            WidgetDeltaStore.writeSnapshot(context, snapshot(now - 60_000L), "[]", false);
+            String[] vendors = {"TIM HORTONS", "LOBLAWS", "SHELL", "NETFLIX", "UBER EATS"};
+            for (int i = 0; i < deltas; i++) {
+                WidgetDeltaStore.recordDelta(context, 4.25 + i, vendors[i % vendors.length], now - 30_000L + i);
+            }
+        }
+    }
+
+    /**
+     * As a redraw does it: read the snapshot, then fold the deltas in.
+     * mergeInto adds to the slices of the snapshot it is given, so it cannot
+     * be handed the same parsed copy twice.
+     */
+    @Benchmark
+    public JSONObject mergeInto(Deltas state) {
+        return WidgetDeltaStore.mergeInto(state.context, WidgetDeltaStore.readSnapshot(state.context));
+    }
+
+    /** What lib/widgetSnapshot.ts pushes, trimmed to the fields mergeInto reads. */
+    static String snapshot(long updatedAtMs) throws Exception {
+        JSONArray slices = new JSONArray();
+        String[] names = {"Housing", "Groceries", "Leisure", "Utilities", "Transport", "Services", "Other"};
+        for (int i = 0; i < names.length; i++) {
+            JSONObject slice = new JSONObject();
+            slice.put("name", names[i]);
+            slice.put("amount", 100.0 * (names.length - i));
+            slice.put("color", "#8A95A3");
+            slices.put(slice);
+        }
+        JSONObject snapshot = new JSONObject();
+        snapshot.put("monthKey", WidgetDeltaStore.monthKeyOf(updatedAtMs));
+        snapshot.put("monthLabel", "This month");
+        snapshot.put("totalSpent", 2800.0);
+        snapshot.put("remaining", 1200.0);
+        snapshot.put("pendingReview", 0);
+        snapshot.put("updatedAtMs", updatedAtMs);
+        snapshot.put("slices", slices);
+        return snapshot.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package android;
+
+/** JVM stand-in for the framework resource ids the capture path names. */
+public final class R {
+
+    private R() {}
+
+    public static final class drawable {
+        private drawable() {}
+
+        public static final int ic_menu_info_details = 0x01080041;
+    }
+}
@@ -0,0 +1,22 @@
+package android.app;
+
+import android.os.Bundle;
+
+/** JVM stand-in: the extras a bank alert is read from. */
+public class Notification {
+
+    public static final String EXTRA_TITLE = "android.title";
+    public static final String EXTRA_TEXT = "android.text";
+    public static final String EXTRA_BIG_TEXT = "android.bigText";
+
+    public Bundle extras = new Bundle();
+
+    /** A bank alert as the listener would be handed it. */
+    public static Notification of(String title, String text, String bigText) {
+        Notification n = new Notification();
+        if (title != null) n.extras.putString(EXTRA_TITLE, title);
+        if (text != null) n.extras.putString(EXTRA_TEXT, text);
+        if (bigText != null) n.extras.putString(EXTRA_BIG_TEXT, bigText);
+        return n;
+    }
+}
@@ -0,0 +1,30 @@
+package android.app;
+
+/** JVM stand-in. */
+public class NotificationChannel {
+
+    private final String id;
+    private final int importance;
+    private String description;
+
+    public NotificationChannel(String id, CharSequence name, int importance) {
+        this.id = id;
+        this.importance = importance;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getImportance() {
+        return importance;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,65 @@
+package android.app;
+
+import covault.shim.Device;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JVM stand-in: keeps the notifications Covault has posted, and charges
+ * covault.shim.Device.notifyCostNanos for each post or cancel.
+ */
+public class NotificationManager {
+
+    public static final int IMPORTANCE_NONE = 0;
+    public static final int IMPORTANCE_DEFAULT = 3;
+
+    private final Map<String, NotificationChannel> channels = new HashMap<>();
+    private final Map<Integer, Notification> posted = new HashMap<>();
+    private final AtomicLong posts = new AtomicLong();
+    private volatile boolean enabled = true;
+
+    public synchronized NotificationChannel getNotificationChannel(String id) {
+        return channels.get(id);
+    }
+
+    public synchronized void createNotificationChannel(NotificationChannel channel) {
+        channels.put(channel.getId(), channel);
+    }
+
+    public boolean areNotificationsEnabled() {
+        return enabled;
+    }
+
+    /** As if the user had turned Covault's notifications off. */
+    public void setNotificationsEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void notify(int id, Notification notification) {
+        long start = System.nanoTime();
+        Device.binder(Device.notifyCostNanos);
+        synchronized (this) {
+            posted.put(id, notification);
+        }
+        posts.incrementAndGet();
+        Device.notified(id, start);
+    }
+
+    public void cancel(int id) {
+        Device.binder(Device.notifyCostNanos);
+        synchronized (this) {
+            posted.remove(id);
+        }
+    }
+
+    /** Every notify() so far, including ones that replaced an earlier id. */
+    public long posts() {
+        return posts.get();
+    }
+
+    public synchronized int showing() {
+        return posted.size();
+    }
+}
@@ -0,0 +1,17 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+
+/** JVM stand-in. */
+public class PendingIntent {
+
+    public static final int FLAG_UPDATE_CURRENT = 0x08000000;
+    public static final int FLAG_IMMUTABLE = 0x04000000;
+
+    private PendingIntent() {}
+
+    public static PendingIntent getActivity(Context context, int requestCode, Intent intent, int flags) {
+        return new PendingIntent();
+    }
+}
@@ -0,0 +1,47 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+import covault.shim.Device;
+
+import java.io.File;
+
+/** JVM stand-in. Every Context is the one app process on covault.shim.Device. */
+public class Context {
+
+    public static final String NOTIFICATION_SERVICE = "notification";
+    public static final int MODE_PRIVATE = 0;
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public String getPackageName() {
+        return Device.PACKAGE;
+    }
+
+    public File getFilesDir() {
+        return Device.filesDir();
+    }
+
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        return Device.prefs(name);
+    }
+
+    public Object getSystemService(String name) {
+        return NOTIFICATION_SERVICE.equals(name) ? Device.notificationManager() : null;
+    }
+
+    public PackageManager getPackageManager() {
+        return new PackageManager();
+    }
+
+    public Resources getResources() {
+        return new Resources();
+    }
+
+    public void sendBroadcast(Intent intent) {
+        Device.broadcast(intent);
+    }
+}
@@ -0,0 +1,56 @@
+package android.content;
+
+import java.util.Map;
+import java.util.Set;
+
+/** JVM stand-in for the interface. See covault.shim.Prefs for the store. */
+public interface SharedPreferences {
+
+    interface OnSharedPreferenceChangeListener {
+        void onSharedPreferenceChanged(SharedPreferences prefs, String key);
+    }
+
+    interface Editor {
+        Editor putString(String key, String value);
+
+        Editor putBoolean(String key, boolean value);
+
+        Editor putInt(String key, int value);
+
+        Editor putLong(String key, long value);
+
+        Editor putFloat(String key, float value);
+
+        Editor putStringSet(String key, Set<String> values);
+
+        Editor remove(String key);
+
+        Editor clear();
+
+        boolean commit();
+
+        void apply();
+    }
+
+    Map<String, ?> getAll();
+
+    String getString(String key, String fallback);
+
+    boolean getBoolean(String key, boolean fallback);
+
+    int getInt(String key, int fallback);
+
+    long getLong(String key, long fallback);
+
+    float getFloat(String key, float fallback);
+
+    Set<String> getStringSet(String key, Set<String> fallback);
+
+    boolean contains(String key);
+
+    Editor edit();
+
+    void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener);
+
+    void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener);
+}
@@ -0,0 +1,11 @@
+package android.content.pm;
+
+import android.content.Intent;
+
+/** JVM stand-in: no launcher activity, so capture notifications carry no tap target. */
+public class PackageManager {
+
+    public Intent getLaunchIntentForPackage(String packageName) {
+        return null;
+    }
+}
@@ -0,0 +1,9 @@
+package android.content.res;
+
+/** JVM stand-in: no app resources. */
+public class Resources {
+
+    public int getIdentifier(String name, String defType, String defPackage) {
+        return 0;
+    }
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+/** JVM stand-in: a current phone. */
+public final class Build {
+
+    private Build() {}
+
+    public static final class VERSION {
+        private VERSION() {}
+
+        public static final int SDK_INT = 34;
+    }
+
+    public static final class VERSION_CODES {
+        private VERSION_CODES() {}
+
+        public static final int O = 26;
+        public static final int TIRAMISU = 33;
+    }
+}
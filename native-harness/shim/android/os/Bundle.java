@@ -0,0 +1,24 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** JVM stand-in: the string extras a notification carries. */
+public class Bundle {
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public String getString(String key) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public String getString(String key, String fallback) {
+        String value = getString(key);
+        return value == null ? fallback : value;
+    }
+}
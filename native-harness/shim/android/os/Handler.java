@@ -0,0 +1,25 @@
+package android.os;
+
+/** JVM stand-in: posts to a Looper. */
+public class Handler {
+
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final boolean post(Runnable task) {
+        looper.enqueue(task, SystemClock.uptimeMillis());
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable task, long delayMillis) {
+        looper.enqueue(task, SystemClock.uptimeMillis() + Math.max(0, delayMillis));
+        return true;
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+}
@@ -0,0 +1,40 @@
+package android.os;
+
+/** JVM stand-in: a thread that runs a Looper. */
+public class HandlerThread extends Thread {
+
+    private Looper looper;
+
+    public HandlerThread(String name) {
+        super(name);
+    }
+
+    @Override
+    public void run() {
+        Looper.prepare();
+        synchronized (this) {
+            looper = Looper.myLooper();
+            notifyAll();
+        }
+        Looper.loop();
+    }
+
+    public synchronized Looper getLooper() {
+        while (looper == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return looper;
+    }
+
+    public boolean quit() {
+        Looper l = getLooper();
+        if (l == null) return false;
+        l.quit();
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package android.os;
+
+import java.util.PriorityQueue;
+
+/**
+ * JVM stand-in: a thread's message queue, run in due-time order and, for
+ * equal times, in the order posted — the guarantee CaptureExecutor relies on.
+ */
+public final class Looper {
+
+    private static final ThreadLocal<Looper> current = new ThreadLocal<>();
+    private static Looper main;
+
+    private final PriorityQueue<Message> queue = new PriorityQueue<>();
+    private long sequence;
+    private boolean quit;
+    final Thread thread;
+
+    private Looper() {
+        thread = Thread.currentThread();
+    }
+
+    public static void prepare() {
+        if (current.get() != null) throw new IllegalStateException("Already prepared");
+        current.set(new Looper());
+    }
+
+    public static Looper myLooper() {
+        return current.get();
+    }
+
+    /**
+     * The main thread. A plain JVM has none that loops, so the first call
+     * starts a daemon thread to stand in for it.
+     */
+    public static synchronized Looper getMainLooper() {
+        if (main == null) {
+            HandlerThread thread = new HandlerThread("main");
+            thread.setDaemon(true);
+            thread.start();
+            main = thread.getLooper();
+        }
+        return main;
+    }
+
+    public static void loop() {
+        Looper me = myLooper();
+        if (me == null) throw new IllegalStateException("No Looper on this thread");
+        while (true) {
+            Runnable task = me.next();
+            if (task == null) return;
+            task.run();
+        }
+    }
+
+    public void quit() {
+        synchronized (queue) {
+            quit = true;
+            queue.notifyAll();
+        }
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    void enqueue(Runnable task, long when) {
+        synchronized (queue) {
+            queue.add(new Message(task, when, sequence++));
+            queue.notifyAll();
+        }
+    }
+
+    /** Tasks queued or running; zero means this looper is idle. */
+    public int pending() {
+        synchronized (queue) {
+            return queue.size() + (running ? 1 : 0);
+        }
+    }
+
+    private boolean running;
+
+    private Runnable next() {
+        synchronized (queue) {
+            running = false;
+            queue.notifyAll();
+            while (true) {
+                if (quit) return null;
+                Message head = queue.peek();
+                long now = SystemClock.uptimeMillis();
+                if (head != null && head.when <= now) {
+                    queue.poll();
+                    running = true;
+                    return head.task;
+                }
+                try {
+                    if (head == null) {
+                        queue.wait();
+                    } else {
+                        queue.wait(Math.max(1, head.when - now));
+                    }
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    /** Block until nothing is queued or running, or timeoutMs passes. */
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (queue) {
+            while (!queue.isEmpty() || running) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) return false;
+                queue.wait(Math.min(left, 5));
+            }
+            return true;
+        }
+    }
+
+    private static final class Message implements Comparable<Message> {
+        final Runnable task;
+        final long when;
+        final long seq;
+
+        Message(Runnable task, long when, long seq) {
+            this.task = task;
+            this.when = when;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Message o) {
+            if (when != o.when) return Long.compare(when, o.when);
+            return Long.compare(seq, o.seq);
+        }
+    }
+}
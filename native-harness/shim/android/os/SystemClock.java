@@ -0,0 +1,13 @@
+package android.os;
+
+/** JVM stand-in: milliseconds since this JVM started. */
+public final class SystemClock {
+
+    private SystemClock() {}
+
+    private static final long ORIGIN = System.nanoTime();
+
+    public static long uptimeMillis() {
+        return (System.nanoTime() - ORIGIN) / 1_000_000L;
+    }
+}
@@ -0,0 +1,46 @@
+package android.service.notification;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import covault.shim.Device;
+
+/**
+ * JVM stand-in. The shade is covault.shim.Device's; a harness posts to it and
+ * then delivers onNotificationPosted itself, as system_server would. A
+ * cancelNotification that removes something is reported back through
+ * onNotificationRemoved.
+ */
+public abstract class NotificationListenerService extends Context {
+
+    public void onCreate() {}
+
+    public void onDestroy() {}
+
+    public void onListenerConnected() {}
+
+    public void onNotificationPosted(StatusBarNotification sbn) {}
+
+    public void onNotificationRemoved(StatusBarNotification sbn) {}
+
+    public StatusBarNotification[] getActiveNotifications() {
+        Device.binder(Device.shadeReadCostNanos);
+        Device.shadeReads.incrementAndGet();
+        return Device.active(null);
+    }
+
+    public StatusBarNotification[] getActiveNotifications(String[] keys) {
+        Device.binder(Device.shadeReadCostNanos);
+        Device.shadeReads.incrementAndGet();
+        return Device.active(keys);
+    }
+
+    /** Reports the removal back on the main thread, as system_server would. */
+    public final void cancelNotification(String key) {
+        Device.binder(Device.cancelCostNanos);
+        StatusBarNotification removed = Device.take(key);
+        Device.cancelled(key, removed != null);
+        if (removed != null) new Handler(Looper.getMainLooper()).post(() -> onNotificationRemoved(removed));
+    }
+}
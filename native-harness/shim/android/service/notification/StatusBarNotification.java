@@ -0,0 +1,42 @@
+package android.service.notification;
+
+import android.app.Notification;
+
+/** JVM stand-in: a notification in the shade. */
+public class StatusBarNotification {
+
+    private final String packageName;
+    private final String key;
+    private final long postTime;
+    private final Notification notification;
+    private final boolean clearable;
+
+    public StatusBarNotification(String packageName, String key, long postTime,
+                                 Notification notification, boolean clearable) {
+        this.packageName = packageName;
+        this.key = key;
+        this.postTime = postTime;
+        this.notification = notification;
+        this.clearable = clearable;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getPostTime() {
+        return postTime;
+    }
+
+    public Notification getNotification() {
+        return notification;
+    }
+
+    public boolean isClearable() {
+        return clearable;
+    }
+}
@@ -0,0 +1,50 @@
+package androidx.core.app;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Context;
+
+/** JVM stand-in: builds a Notification carrying its title and text. */
+public final class NotificationCompat {
+
+    private NotificationCompat() {}
+
+    public static final int PRIORITY_DEFAULT = 0;
+
+    public static class Builder {
+        private String title;
+        private String text;
+
+        public Builder(Context context, String channelId) {}
+
+        public Builder setSmallIcon(int icon) {
+            return this;
+        }
+
+        public Builder setContentTitle(CharSequence title) {
+            this.title = String.valueOf(title);
+            return this;
+        }
+
+        public Builder setContentText(CharSequence text) {
+            this.text = String.valueOf(text);
+            return this;
+        }
+
+        public Builder setAutoCancel(boolean autoCancel) {
+            return this;
+        }
+
+        public Builder setPriority(int priority) {
+            return this;
+        }
+
+        public Builder setContentIntent(PendingIntent intent) {
+            return this;
+        }
+
+        public Notification build() {
+            return Notification.of(title, text, null);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package androidx.core.app;
+
+import android.content.Context;
+
+import covault.shim.Device;
+
+/** JVM stand-in. */
+public final class NotificationManagerCompat {
+
+    private NotificationManagerCompat() {}
+
+    public static NotificationManagerCompat from(Context context) {
+        return new NotificationManagerCompat();
+    }
+
+    public boolean areNotificationsEnabled() {
+        return Device.notificationManager().areNotificationsEnabled();
+    }
+}
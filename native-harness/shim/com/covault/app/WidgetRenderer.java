@@ -0,0 +1,11 @@
+package com.covault.app;
+
+/** JVM stand-in for the widget renderer. Every category is the fallback grey. */
+final class WidgetRenderer {
+
+    private WidgetRenderer() {}
+
+    static int colorForCategory(String name) {
+        return 0xFF8A95A3;
+    }
+}
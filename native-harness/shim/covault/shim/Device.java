@@ -0,0 +1,191 @@
+package covault.shim;
+
+import android.app.NotificationManager;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.service.notification.StatusBarNotification;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The phone the stand-ins pretend to be: one app process, its files, its
+ * preference stores, its notification manager and the shade it can see.
+ *
+ * Everything in android.* under native-harness/shim reads its state from
+ * here, so a harness sets the device up, runs the real capture code against
+ * it, and reads back what that code did. reset() gives a fresh install.
+ *
+ * The Binder costs are what makes this more than a mock: each call the
+ * capture path makes into system_server costs nothing on a plain JVM, which
+ * would flatter every number measured through it. A harness that cares about
+ * latency sets them to what a real phone costs.
+ */
+public final class Device {
+
+    private Device() {}
+
+    public static final String PACKAGE = "com.covault.app";
+
+    private static File filesDir;
+    private static boolean persistPrefs;
+    private static final Map<String, SharedPreferences> prefs = new LinkedHashMap<>();
+    private static NotificationManager notificationManager = new NotificationManager();
+    private static final Map<String, StatusBarNotification> shade = new LinkedHashMap<>();
+    private static final AtomicLong broadcasts = new AtomicLong();
+    private static volatile Consumer<Intent> broadcastListener;
+    private static volatile Observer observer;
+
+    /**
+     * Told what the capture path did to the notification manager and the
+     * shade, on the thread that did it and as it happened, so a harness can
+     * time each step against the post that caused it.
+     */
+    public interface Observer {
+        /** A notify() into NotificationManager, from the call to its return. */
+        void notified(int id, long startNanos, long endNanos);
+
+        /** A cancelNotification() from the listener, at its return. */
+        void cancelled(String key, boolean removed, long endNanos);
+    }
+
+    /** Simulated cost of a notify() or cancel() into NotificationManager. */
+    public static volatile long notifyCostNanos;
+    /** Simulated cost of cancelNotification() from the listener. */
+    public static volatile long cancelCostNanos;
+    /** Simulated cost of reading the shade with getActiveNotifications(). */
+    public static volatile long shadeReadCostNanos;
+    /** getActiveNotifications() calls since reset. */
+    public static final java.util.concurrent.atomic.AtomicInteger shadeReads =
+        new java.util.concurrent.atomic.AtomicInteger();
+
+    /**
+     * A fresh install. Preference stores are written to dir when persistPrefs
+     * is set, as apply()/commit() would on a phone, and kept only in memory
+     * otherwise; the capture journal and secured set always live in dir.
+     */
+    public static synchronized void reset(File dir, boolean persistPrefs) {
+        filesDir = dir;
+        Device.persistPrefs = persistPrefs;
+        dir.mkdirs();
+        prefs.clear();
+        notificationManager = new NotificationManager();
+        synchronized (shade) {
+            shade.clear();
+        }
+        broadcasts.set(0);
+        broadcastListener = null;
+        observer = null;
+        notifyCostNanos = 0;
+        cancelCostNanos = 0;
+        shadeReadCostNanos = 0;
+        shadeReads.set(0);
+    }
+
+    public static synchronized File filesDir() {
+        if (filesDir == null) {
+            throw new IllegalStateException("Device.reset() has not been called");
+        }
+        return filesDir;
+    }
+
+    public static synchronized SharedPreferences prefs(String name) {
+        SharedPreferences store = prefs.get(name);
+        if (store == null) {
+            File file = persistPrefs ? new File(filesDir(), "shared_prefs/" + name + ".json") : null;
+            store = new Prefs(file);
+            prefs.put(name, store);
+        }
+        return store;
+    }
+
+    public static synchronized NotificationManager notificationManager() {
+        return notificationManager;
+    }
+
+    // ── The shade ───────────────────────────────────────────────────────
+
+    public static void post(StatusBarNotification sbn) {
+        synchronized (shade) {
+            shade.put(sbn.getKey(), sbn);
+        }
+    }
+
+    public static boolean remove(String key) {
+        return take(key) != null;
+    }
+
+    /** Remove key from the shade, returning what was there. */
+    public static StatusBarNotification take(String key) {
+        synchronized (shade) {
+            return shade.remove(key);
+        }
+    }
+
+    public static StatusBarNotification[] active(String[] keys) {
+        synchronized (shade) {
+            if (keys == null) return shade.values().toArray(new StatusBarNotification[0]);
+            java.util.List<StatusBarNotification> found = new java.util.ArrayList<>();
+            for (String key : keys) {
+                StatusBarNotification sbn = shade.get(key);
+                if (sbn != null) found.add(sbn);
+            }
+            return found.toArray(new StatusBarNotification[0]);
+        }
+    }
+
+    public static int shadeSize() {
+        synchronized (shade) {
+            return shade.size();
+        }
+    }
+
+    // ── Broadcasts ──────────────────────────────────────────────────────
+
+    public static void onBroadcast(Consumer<Intent> listener) {
+        broadcastListener = listener;
+    }
+
+    public static void broadcast(Intent intent) {
+        broadcasts.incrementAndGet();
+        Consumer<Intent> listener = broadcastListener;
+        if (listener != null) listener.accept(intent);
+    }
+
+    public static long broadcasts() {
+        return broadcasts.get();
+    }
+
+    // ── Observation ─────────────────────────────────────────────────────
+
+    public static void observe(Observer o) {
+        observer = o;
+    }
+
+    public static void notified(int id, long startNanos) {
+        Observer o = observer;
+        if (o != null) o.notified(id, startNanos, System.nanoTime());
+    }
+
+    public static void cancelled(String key, boolean removed) {
+        Observer o = observer;
+        if (o != null) o.cancelled(key, removed, System.nanoTime());
+    }
+
+    /** Spend nanos of wall time, standing in for a Binder round trip. */
+    public static void binder(long nanos) {
+        if (nanos <= 0) return;
+        long until = System.nanoTime() + nanos;
+        if (nanos > 2_000_000L) {
+            try {
+                Thread.sleep(nanos / 1_000_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (System.nanoTime() < until) Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,240 @@
+package covault.shim;
+
+import android.content.SharedPreferences;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A SharedPreferences store that behaves like Android's where the capture
+ * path can tell: reads come from memory, an editor's changes land in memory
+ * as a unit, and commit() rewrites the whole file and syncs it, as Android
+ * does. apply() writes the file too, but without waiting for the sync.
+ * Without a file it is memory only, for measuring CPU work alone.
+ *
+ * Change listeners are called on the committing thread rather than the main
+ * one; nothing the capture path registers cares which.
+ */
+final class Prefs implements SharedPreferences {
+
+    private final File file;
+    private final Map<String, Object> values = new HashMap<>();
+    private final List<OnSharedPreferenceChangeListener> listeners = new ArrayList<>();
+
+    Prefs(File file) {
+        this.file = file;
+        if (file != null && file.exists()) load();
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+
+    @Override
+    public synchronized String getString(String key, String fallback) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : fallback;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean fallback) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : fallback;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int fallback) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : fallback;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long fallback) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : fallback;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float fallback) {
+        Object value = values.get(key);
+        return value instanceof Float ? (Float) value : fallback;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, Set<String> fallback) {
+        Object value = values.get(key);
+        return value instanceof Set ? new HashSet<>((Set<String>) value) : fallback;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new PrefsEditor();
+    }
+
+    @Override
+    public synchronized void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public synchronized void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean write(Map<String, Object> changes, Set<String> removed, boolean cleared, boolean sync) {
+        Set<String> changed = new HashSet<>();
+        List<OnSharedPreferenceChangeListener> notify;
+        String serialised;
+        synchronized (this) {
+            if (cleared) {
+                changed.addAll(values.keySet());
+                values.clear();
+            }
+            for (String key : removed) {
+                if (values.remove(key) != null) changed.add(key);
+            }
+            values.putAll(changes);
+            changed.addAll(changes.keySet());
+            notify = new ArrayList<>(listeners);
+            serialised = file == null ? null : serialise();
+        }
+        for (OnSharedPreferenceChangeListener listener : notify) {
+            for (String key : changed) listener.onSharedPreferenceChanged(this, key);
+        }
+        if (serialised == null) return true;
+        try {
+            file.getParentFile().mkdirs();
+            try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                byte[] bytes = serialised.getBytes(StandardCharsets.UTF_8);
+                out.setLength(0);
+                out.write(bytes);
+                if (sync) out.getFD().sync();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private String serialise() {
+        JSONObject out = new JSONObject();
+        try {
+            for (Map.Entry<String, Object> e : values.entrySet()) {
+                Object value = e.getValue();
+                if (value instanceof Set) continue;
+                String type = value instanceof String ? "s" : value instanceof Boolean ? "b"
+                    : value instanceof Integer ? "i" : value instanceof Long ? "l" : "f";
+                out.put(e.getKey(), type + String.valueOf(value));
+            }
+        } catch (org.json.JSONException ignored) {
+            // keys are never null
+        }
+        return out.toString();
+    }
+
+    private void load() {
+        try {
+            JSONObject in = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            java.util.Iterator<String> keys = in.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                String raw = in.getString(key);
+                String body = raw.substring(1);
+                switch (raw.charAt(0)) {
+                    case 's': values.put(key, body); break;
+                    case 'b': values.put(key, Boolean.valueOf(body)); break;
+                    case 'i': values.put(key, Integer.valueOf(body)); break;
+                    case 'l': values.put(key, Long.valueOf(body)); break;
+                    default: values.put(key, Float.valueOf(body));
+                }
+            }
+        } catch (Exception e) {
+            // An unreadable store starts empty, as Android's does.
+            values.clear();
+        }
+    }
+
+    private final class PrefsEditor implements Editor {
+        private final Map<String, Object> changes = new HashMap<>();
+        private final Set<String> removed = new HashSet<>();
+        private boolean cleared;
+
+        private Editor put(String key, Object value) {
+            if (value == null) return remove(key);
+            changes.put(key, value);
+            removed.remove(key);
+            return this;
+        }
+
+        @Override
+        public Editor putString(String key, String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            return put(key, values == null ? null : new HashSet<>(values));
+        }
+
+        @Override
+        public Editor remove(String key) {
+            changes.remove(key);
+            removed.add(key);
+            return this;
+        }
+
+        @Override
+        public Editor clear() {
+            cleared = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            return write(changes, removed, cleared, true);
+        }
+
+        @Override
+        public void apply() {
+            write(changes, removed, cleared, false);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.json;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Parsing and printing shared by the JSONObject and JSONArray stand-ins.
+ *
+ * Enough of org.json for the capture code: objects, arrays, strings, numbers,
+ * booleans and null, written back compactly in insertion order the way
+ * Android writes them.
+ */
+final class JSON {
+
+    private JSON() {}
+
+    static Object wrap(Object value) {
+        if (value == null) return JSONObject.NULL;
+        if (value instanceof JSONObject || value instanceof JSONArray) return value;
+        if (value instanceof Collection) return new JSONArray((Collection<?>) value);
+        if (value instanceof Map) return new JSONObject((Map<?, ?>) value);
+        return value;
+    }
+
+    static void write(StringBuilder out, Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            out.append("null");
+        } else if (value instanceof String) {
+            quote(out, (String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+                out.append((long) d);
+            } else {
+                out.append(d);
+            }
+        } else if (value instanceof JSONObject) {
+            ((JSONObject) value).writeTo(out);
+        } else if (value instanceof JSONArray) {
+            ((JSONArray) value).writeTo(out);
+        } else {
+            out.append(value);
+        }
+    }
+
+    static void quote(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '/': out.append("\\/"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\b': out.append("\\b"); break;
+                case '\f': out.append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    static Double toDouble(Object value) {
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof String) {
+            try {
+                return Double.valueOf((String) value);
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    static Boolean toBoolean(Object value) {
+        if (value instanceof Boolean) return (Boolean) value;
+        if ("true".equalsIgnoreCase(String.valueOf(value))) return true;
+        if ("false".equalsIgnoreCase(String.valueOf(value))) return false;
+        return null;
+    }
+
+    /** A recursive-descent reader over one JSON text. */
+    static final class Reader {
+        private final String in;
+        private int pos;
+
+        Reader(String in) {
+            this.in = in;
+        }
+
+        Object readValue() throws JSONException {
+            skipSpace();
+            if (pos >= in.length()) throw error("Unexpected end of input");
+            char c = in.charAt(pos);
+            switch (c) {
+                case '{': return readObject();
+                case '[': return readArray();
+                case '"': return readString();
+                default: return readLiteral();
+            }
+        }
+
+        void expectEnd() throws JSONException {
+            skipSpace();
+            if (pos != in.length()) throw error("Trailing characters");
+        }
+
+        JSONObject readObject() throws JSONException {
+            expect('{');
+            JSONObject object = new JSONObject();
+            skipSpace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipSpace();
+                String name = readString();
+                skipSpace();
+                expect(':');
+                object.put(name, readValue());
+                skipSpace();
+                char c = next();
+                if (c == '}') return object;
+                if (c != ',') throw error("Expected , or }");
+            }
+        }
+
+        JSONArray readArray() throws JSONException {
+            expect('[');
+            JSONArray array = new JSONArray();
+            skipSpace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.put(readValue());
+                skipSpace();
+                char c = next();
+                if (c == ']') return array;
+                if (c != ',') throw error("Expected , or ]");
+            }
+        }
+
+        private String readString() throws JSONException {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case 'n': out.append('\n'); break;
+                    case 'r': out.append('\r'); break;
+                    case 't': out.append('\t'); break;
+                    case 'b': out.append('\b'); break;
+                    case 'f': out.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > in.length()) throw error("Bad escape");
+                        out.append((char) Integer.parseInt(in.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: out.append(e);
+                }
+            }
+        }
+
+        private Object readLiteral() throws JSONException {
+            int start = pos;
+            while (pos < in.length() && ",:]} \t\r\n".indexOf(in.charAt(pos)) < 0) pos++;
+            String token = in.substring(start, pos);
+            if (token.equals("null")) return JSONObject.NULL;
+            if (token.equals("true")) return Boolean.TRUE;
+            if (token.equals("false")) return Boolean.FALSE;
+            try {
+                if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+                    long l = Long.parseLong(token);
+                    if (l == (int) l) return (int) l;
+                    return l;
+                }
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw error("Unexpected token " + token);
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < in.length() && Character.isWhitespace(in.charAt(pos))) pos++;
+        }
+
+        private char peek() throws JSONException {
+            if (pos >= in.length()) throw error("Unexpected end of input");
+            return in.charAt(pos);
+        }
+
+        private char next() throws JSONException {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) throws JSONException {
+            if (next() != c) throw error("Expected " + c);
+        }
+
+        private JSONException error(String message) {
+            return new JSONException(message + " at character " + pos);
+        }
+    }
+}
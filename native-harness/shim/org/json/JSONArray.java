@@ -0,0 +1,154 @@
+package org.json;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/** JVM stand-in for Android's org.json.JSONArray. See JSON. */
+public class JSONArray {
+
+    private final List<Object> values = new ArrayList<>();
+
+    public JSONArray() {}
+
+    public JSONArray(String json) throws JSONException {
+        JSON.Reader reader = new JSON.Reader(json);
+        Object value = reader.readValue();
+        reader.expectEnd();
+        if (!(value instanceof JSONArray)) throw new JSONException("Not a JSON array");
+        values.addAll(((JSONArray) value).values);
+    }
+
+    public JSONArray(Collection<?> collection) {
+        if (collection == null) return;
+        for (Object value : collection) values.add(JSON.wrap(value));
+    }
+
+    public int length() {
+        return values.size();
+    }
+
+    public JSONArray put(Object value) {
+        values.add(value);
+        return this;
+    }
+
+    public JSONArray put(boolean value) {
+        return put((Object) value);
+    }
+
+    public JSONArray put(int value) {
+        return put((Object) value);
+    }
+
+    public JSONArray put(long value) {
+        return put((Object) value);
+    }
+
+    public JSONArray put(double value) throws JSONException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) throw new JSONException("Forbidden numeric value " + value);
+        return put((Object) value);
+    }
+
+    public JSONArray put(int index, Object value) throws JSONException {
+        if (index < 0) throw new JSONException("Index " + index + " out of range");
+        while (values.size() <= index) values.add(null);
+        values.set(index, value);
+        return this;
+    }
+
+    public Object remove(int index) {
+        return index < 0 || index >= values.size() ? null : values.remove(index);
+    }
+
+    public boolean isNull(int index) {
+        Object value = opt(index);
+        return value == null || value == JSONObject.NULL;
+    }
+
+    public Object opt(int index) {
+        return index < 0 || index >= values.size() ? null : values.get(index);
+    }
+
+    public Object get(int index) throws JSONException {
+        Object value = opt(index);
+        if (value == null) throw new JSONException("Index " + index + " out of range");
+        return value;
+    }
+
+    public String optString(int index) {
+        return optString(index, "");
+    }
+
+    public String optString(int index, String fallback) {
+        Object value = opt(index);
+        return value == null || value == JSONObject.NULL ? fallback : String.valueOf(value);
+    }
+
+    public String getString(int index) throws JSONException {
+        return String.valueOf(get(index));
+    }
+
+    public double optDouble(int index, double fallback) {
+        Double d = JSON.toDouble(opt(index));
+        return d == null ? fallback : d;
+    }
+
+    public int optInt(int index, int fallback) {
+        Double d = JSON.toDouble(opt(index));
+        return d == null ? fallback : d.intValue();
+    }
+
+    public int getInt(int index) throws JSONException {
+        Double d = JSON.toDouble(get(index));
+        if (d == null) throw new JSONException("Not a number at " + index);
+        return d.intValue();
+    }
+
+    public long optLong(int index, long fallback) {
+        Object value = opt(index);
+        if (value instanceof Number) return ((Number) value).longValue();
+        Double d = JSON.toDouble(value);
+        return d == null ? fallback : d.longValue();
+    }
+
+    public long getLong(int index) throws JSONException {
+        Object value = get(index);
+        if (value instanceof Number) return ((Number) value).longValue();
+        Double d = JSON.toDouble(value);
+        if (d == null) throw new JSONException("Not a number at " + index);
+        return d.longValue();
+    }
+
+    public JSONObject optJSONObject(int index) {
+        Object value = opt(index);
+        return value instanceof JSONObject ? (JSONObject) value : null;
+    }
+
+    public JSONObject getJSONObject(int index) throws JSONException {
+        Object value = get(index);
+        if (!(value instanceof JSONObject)) throw new JSONException("Not an object at " + index);
+        return (JSONObject) value;
+    }
+
+    public JSONArray optJSONArray(int index) {
+        Object value = opt(index);
+        return value instanceof JSONArray ? (JSONArray) value : null;
+    }
+
+    void writeTo(StringBuilder out) {
+        out.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) out.append(',');
+            JSON.write(out, values.get(i));
+        }
+        out.append(']');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        writeTo(out);
+        return out.toString();
+    }
+}
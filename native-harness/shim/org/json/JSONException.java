@@ -0,0 +1,8 @@
+package org.json;
+
+/** JVM stand-in for Android's org.json. Checked, as it is there. */
+public class JSONException extends Exception {
+    public JSONException(String message) {
+        super(message);
+    }
+}
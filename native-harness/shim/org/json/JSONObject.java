@@ -0,0 +1,217 @@
+package org.json;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** JVM stand-in for Android's org.json.JSONObject. See JSON. */
+public class JSONObject {
+
+    public static final Object NULL = new Object() {
+        @Override
+        public boolean equals(Object o) {
+            return o == this || o == null;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    private final LinkedHashMap<String, Object> values = new LinkedHashMap<>();
+
+    public JSONObject() {}
+
+    public JSONObject(String json) throws JSONException {
+        JSON.Reader reader = new JSON.Reader(json);
+        Object value = reader.readValue();
+        reader.expectEnd();
+        if (!(value instanceof JSONObject)) throw new JSONException("Not a JSON object");
+        values.putAll(((JSONObject) value).values);
+    }
+
+    JSONObject(Map<?, ?> map) {
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            values.put(String.valueOf(e.getKey()), JSON.wrap(e.getValue()));
+        }
+    }
+
+    public int length() {
+        return values.size();
+    }
+
+    public JSONObject put(String name, Object value) throws JSONException {
+        if (name == null) throw new JSONException("Null name");
+        if (value == null) {
+            values.remove(name);
+        } else {
+            values.put(name, value);
+        }
+        return this;
+    }
+
+    public JSONObject put(String name, boolean value) throws JSONException {
+        return put(name, (Object) value);
+    }
+
+    public JSONObject put(String name, int value) throws JSONException {
+        return put(name, (Object) value);
+    }
+
+    public JSONObject put(String name, long value) throws JSONException {
+        return put(name, (Object) value);
+    }
+
+    public JSONObject put(String name, double value) throws JSONException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) throw new JSONException("Forbidden numeric value " + value);
+        return put(name, (Object) value);
+    }
+
+    public Object remove(String name) {
+        return values.remove(name);
+    }
+
+    public boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    public boolean isNull(String name) {
+        Object value = values.get(name);
+        return value == null || value == NULL;
+    }
+
+    public Iterator<String> keys() {
+        return values.keySet().iterator();
+    }
+
+    public Object opt(String name) {
+        return values.get(name);
+    }
+
+    public Object get(String name) throws JSONException {
+        Object value = values.get(name);
+        if (value == null) throw new JSONException("No value for " + name);
+        return value;
+    }
+
+    public String optString(String name) {
+        return optString(name, "");
+    }
+
+    public String optString(String name, String fallback) {
+        Object value = values.get(name);
+        return value == null || value == NULL ? fallback : String.valueOf(value);
+    }
+
+    public String getString(String name) throws JSONException {
+        return String.valueOf(get(name));
+    }
+
+    public double optDouble(String name) {
+        return optDouble(name, Double.NaN);
+    }
+
+    public double optDouble(String name, double fallback) {
+        Double d = JSON.toDouble(values.get(name));
+        return d == null ? fallback : d;
+    }
+
+    public double getDouble(String name) throws JSONException {
+        Double d = JSON.toDouble(get(name));
+        if (d == null) throw new JSONException("Not a number: " + name);
+        return d;
+    }
+
+    public int optInt(String name) {
+        return optInt(name, 0);
+    }
+
+    public int optInt(String name, int fallback) {
+        Double d = JSON.toDouble(values.get(name));
+        return d == null ? fallback : d.intValue();
+    }
+
+    public int getInt(String name) throws JSONException {
+        return (int) getDouble(name);
+    }
+
+    public long optLong(String name) {
+        return optLong(name, 0L);
+    }
+
+    public long optLong(String name, long fallback) {
+        Object value = values.get(name);
+        if (value instanceof Number) return ((Number) value).longValue();
+        Double d = JSON.toDouble(value);
+        return d == null ? fallback : d.longValue();
+    }
+
+    public long getLong(String name) throws JSONException {
+        Object value = get(name);
+        if (value instanceof Number) return ((Number) value).longValue();
+        return (long) getDouble(name);
+    }
+
+    public boolean optBoolean(String name) {
+        return optBoolean(name, false);
+    }
+
+    public boolean optBoolean(String name, boolean fallback) {
+        Boolean b = JSON.toBoolean(values.get(name));
+        return b == null ? fallback : b;
+    }
+
+    public boolean getBoolean(String name) throws JSONException {
+        Boolean b = JSON.toBoolean(get(name));
+        if (b == null) throw new JSONException("Not a boolean: " + name);
+        return b;
+    }
+
+    public JSONObject optJSONObject(String name) {
+        Object value = values.get(name);
+        return value instanceof JSONObject ? (JSONObject) value : null;
+    }
+
+    public JSONObject getJSONObject(String name) throws JSONException {
+        Object value = get(name);
+        if (!(value instanceof JSONObject)) throw new JSONException("Not an object: " + name);
+        return (JSONObject) value;
+    }
+
+    public JSONArray optJSONArray(String name) {
+        Object value = values.get(name);
+        return value instanceof JSONArray ? (JSONArray) value : null;
+    }
+
+    public JSONArray getJSONArray(String name) throws JSONException {
+        Object value = get(name);
+        if (!(value instanceof JSONArray)) throw new JSONException("Not an array: " + name);
+        return (JSONArray) value;
+    }
+
+    void writeTo(StringBuilder out) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            if (!first) out.append(',');
+            first = false;
+            JSON.quote(out, e.getKey());
+            out.append(':');
+            JSON.write(out, e.getValue());
+        }
+        out.append('}');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        writeTo(out);
+        return out.toString();
+    }
+}
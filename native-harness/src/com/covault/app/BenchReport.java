@@ -0,0 +1,217 @@
+package com.covault.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the CSV that `scripts/native-harness.sh bench` leaves behind and says
+ * what it found, in a form two runs can be lined up in.
+ *
+ * JMH's own table is ordered by how it happened to run and wraps its
+ * parameters in columns that come and go with the benchmark. Here every row is
+ * one line — `method[param=value]`, score, error, unit — sorted by name, so a
+ * saved report diffs cleanly against the next.
+ *
+ * Usage:
+ *
+ *   report  JMH.csv
+ *   compare BASE.csv NEW.csv [--threshold 0.10]
+ *
+ * compare exits 1 when any benchmark got slower by more than the threshold
+ * and by more than the two runs' errors together; a difference inside the
+ * error is noise, however large it looks.
+ */
+final class BenchReport {
+
+    private BenchReport() {}
+
+    static final double DEFAULT_THRESHOLD = 0.10;
+
+    static final class Row {
+        final String name;
+        final double score;
+        final double error;
+        final String unit;
+
+        Row(String name, double score, double error, String unit) {
+            this.name = name;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && "report".equals(args[0])) {
+            print(System.out, read(new File(args[1])));
+            return;
+        }
+        if (args.length >= 3 && "compare".equals(args[0])) {
+            double threshold = DEFAULT_THRESHOLD;
+            for (int i = 3; i < args.length; i++) {
+                if ("--threshold".equals(args[i])) threshold = Double.parseDouble(args[++i]);
+            }
+            int regressions = compare(System.out, read(new File(args[1])), read(new File(args[2])), threshold);
+            System.exit(regressions == 0 ? 0 : 1);
+        }
+        System.err.println("usage: report JMH.csv | compare BASE.csv NEW.csv [--threshold 0.10]");
+        System.exit(2);
+    }
+
+    /** Rows by name, sorted. The method is the benchmark's last dotted segment. */
+    static Map<String, Row> read(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty()) throw new IOException("Empty benchmark results: " + file);
+        List<String> header = splitCsv(lines.get(0));
+        int benchmark = column(header, "Benchmark", file);
+        int score = column(header, "Score", file);
+        int error = column(header, "Score Error (99.9%)", file);
+        int unit = column(header, "Unit", file);
+        Map<Integer, String> params = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String h = header.get(i);
+            if (h.startsWith("Param: ")) params.put(i, h.substring("Param: ".length()));
+        }
+
+        Map<String, Row> rows = new TreeMap<>(BenchReport::naturalOrder);
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isEmpty()) continue;
+            List<String> cells = splitCsv(line);
+            String method = cells.get(benchmark);
+            StringBuilder name = new StringBuilder(method.substring(method.lastIndexOf('.') + 1));
+            StringBuilder given = new StringBuilder();
+            for (Map.Entry<Integer, String> p : params.entrySet()) {
+                String value = p.getKey() < cells.size() ? cells.get(p.getKey()) : "";
+                if (value.isEmpty()) continue;
+                if (given.length() > 0) given.append(',');
+                given.append(p.getValue()).append('=').append(value);
+            }
+            if (given.length() > 0) name.append('[').append(given).append(']');
+            rows.put(name.toString(), new Row(name.toString(),
+                parseNumber(cells.get(score)), parseNumber(cells.get(error)), cells.get(unit)));
+        }
+        return rows;
+    }
+
+    static void print(PrintStream out, Map<String, Row> rows) {
+        out.println("# benchmark\tscore\terror\tunit");
+        for (Row r : rows.values()) {
+            out.println(String.format(Locale.US, "%s\t%.1f\t%.1f\t%s", r.name, r.score, r.error, r.unit));
+        }
+    }
+
+    /** Prints both runs side by side and returns how many benchmarks regressed. */
+    static int compare(PrintStream out, Map<String, Row> base, Map<String, Row> next, double threshold) {
+        int regressions = 0;
+        out.println("# benchmark\tbase\tnew\tchange\tverdict");
+        for (Row b : base.values()) {
+            Row n = next.get(b.name);
+            if (n == null) {
+                out.println(b.name + "\t" + fmt(b.score) + "\t-\t-\tmissing");
+                continue;
+            }
+            double change = b.score == 0 ? 0 : (n.score - b.score) / b.score;
+            double delta = Math.abs(n.score - b.score);
+            String verdict;
+            if (delta <= b.error + n.error || Math.abs(change) <= threshold) {
+                verdict = "same";
+            } else if (n.score > b.score) {
+                verdict = "SLOWER";
+                regressions++;
+            } else {
+                verdict = "faster";
+            }
+            out.println(String.format(Locale.US, "%s\t%s\t%s\t%+.1f%%\t%s",
+                b.name, fmt(b.score), fmt(n.score), change * 100, verdict));
+        }
+        for (Row n : next.values()) {
+            if (!base.containsKey(n.name)) out.println(n.name + "\t-\t" + fmt(n.score) + "\t-\tnew");
+        }
+        out.println(String.format(Locale.US, "# %d slower by more than %.0f%% and the error",
+            regressions, threshold * 100));
+        return regressions;
+    }
+
+    /** Runs of digits compare as numbers, so rules=100 sorts before rules=1000. */
+    static int naturalOrder(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            char x = a.charAt(i);
+            char y = b.charAt(j);
+            if (Character.isDigit(x) && Character.isDigit(y)) {
+                int ei = i;
+                int ej = j;
+                while (ei < a.length() && Character.isDigit(a.charAt(ei))) ei++;
+                while (ej < b.length() && Character.isDigit(b.charAt(ej))) ej++;
+                int byValue = new BigInteger(a.substring(i, ei)).compareTo(new BigInteger(b.substring(j, ej)));
+                if (byValue != 0) return byValue;
+                i = ei;
+                j = ej;
+            } else {
+                if (x != y) return Character.compare(x, y);
+                i++;
+                j++;
+            }
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static String fmt(double score) {
+        return String.format(Locale.US, "%.1f", score);
+    }
+
+    private static int column(List<String> header, String name, File file) throws IOException {
+        int i = header.indexOf(name);
+        if (i < 0) throw new IOException("No \"" + name + "\" column in " + file + "; is it JMH's -rf csv?");
+        return i;
+    }
+
+    /** JMH writes NaN for the error of a single measurement. */
+    private static double parseNumber(String s) {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** One CSV line: comma-separated, fields optionally double-quoted, "" for a quote. */
+    static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+}
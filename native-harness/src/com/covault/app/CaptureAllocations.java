@@ -0,0 +1,273 @@
+package com.covault.app;
+
+import android.app.Notification;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.service.notification.StatusBarNotification;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bytes allocated per alert on the capture path, held to a budget.
+ *
+ * Every alert the listener reads used to cost a few JSON graphs, a dozen
+ * Matchers and several copies of its own text, and on a low-end phone that is
+ * a collection every few alerts while a storm is coming in. The work since has
+ * been to take that away; this is what keeps it away. A change that puts an
+ * allocation back fails here, with the path it landed on, rather than on a
+ * phone as jank nobody can attribute.
+ *
+ * Two kinds of path, measured with the JVM's per-thread allocation counter:
+ *
+ *   capture    a live post, from onNotificationPosted to the capture thread
+ *              going idle: extraction, the checks, the journal, notify,
+ *              broadcast, commit and outcome. Counted on the capture thread.
+ *              Tray suppression is off, so the dismissal and its delayed
+ *              verification are not in it.
+ *   the rest   each function CaptureReplay times, on the calling thread
+ *
+ * Usage (see scripts/native-harness.sh):
+ *
+ *   alloc CORPUS.tsv [--rules RULES.json] [--recurring CHARGES.json]
+ *                    [--rounds N] [--budgets BUDGETS.tsv]
+ *
+ * Budgets are PATH<TAB>BYTES per alert, averaged over the corpus. With
+ * --budgets the run exits 1 when any path is over its budget, or has none.
+ */
+final class CaptureAllocations {
+
+    private CaptureAllocations() {}
+
+    static final String CAPTURE = "capture";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Mean and worst bytes per alert on one path. */
+    static final class Weight {
+        final String path;
+        final double mean;
+        final long worst;
+        final String worstText;
+
+        Weight(String path, double mean, long worst, String worstText) {
+            this.path = path;
+            this.mean = mean;
+            this.worst = worst;
+            this.worstText = worstText;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String corpusPath = null;
+        String rulesPath = null;
+        String recurringPath = null;
+        String budgetsPath = null;
+        int rounds = 20;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rules": rulesPath = args[++i]; break;
+                case "--recurring": recurringPath = args[++i]; break;
+                case "--budgets": budgetsPath = args[++i]; break;
+                case "--rounds": rounds = Integer.parseInt(args[++i]); break;
+                default: corpusPath = args[i];
+            }
+        }
+        if (corpusPath == null) {
+            System.err.println("usage: alloc CORPUS.tsv [--rules RULES.json] [--recurring CHARGES.json] "
+                + "[--rounds N] [--budgets BUDGETS.tsv]");
+            System.exit(2);
+        }
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM does not count allocations per thread");
+            System.exit(2);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        List<CaptureReplay.Alert> corpus = CaptureReplay.readCorpus(new File(corpusPath));
+        Context context = CaptureReplay.install(read(rulesPath), read(recurringPath));
+        CovaultPrefs.config(context).edit()
+            .putBoolean(NotificationListener.HIDE_BANK_NOTIFICATIONS_KEY, false).commit();
+
+        List<CaptureReplay.Reading> readings = new ArrayList<>(corpus.size());
+        for (CaptureReplay.Alert alert : corpus) readings.add(CaptureReplay.readCapture(context, alert));
+
+        List<Weight> weights = new ArrayList<>();
+        weights.add(weighCapture(context, corpus, rounds));
+        for (int p = 0; p < CaptureReplay.PROBES.length; p++) {
+            weights.add(weigh(CaptureReplay.PROBE_NAMES[p], CaptureReplay.PROBES[p], context, corpus, readings, rounds));
+        }
+
+        Map<String, Long> budgets = budgetsPath == null ? null : readBudgets(new File(budgetsPath));
+        int over = print(System.out, weights, budgets, corpus.size(), rounds);
+        // The capture thread is not a daemon, as on a phone, and never quits.
+        System.exit(over == 0 ? 0 : 1);
+    }
+
+    // ── Measuring ────────────────────────────────────────────────────────
+
+    /**
+     * One function over the corpus, warmed up first so that what is counted
+     * is the steady state: lazily built tables and the JIT's first tiers are
+     * a one-off, not a per-alert cost.
+     */
+    static Weight weigh(String path, CaptureReplay.Probe probe, Context context,
+                        List<CaptureReplay.Alert> corpus, List<CaptureReplay.Reading> readings, int rounds) {
+        long[] perAlert = new long[corpus.size()];
+        for (int round = 0; round < rounds * 2; round++) {
+            boolean counted = round >= rounds;
+            for (int i = 0; i < corpus.size(); i++) {
+                long before = THREADS.getCurrentThreadAllocatedBytes();
+                Object result = probe.run(context, corpus.get(i), readings.get(i));
+                long bytes = THREADS.getCurrentThreadAllocatedBytes() - before;
+                CaptureReplay.sink += result == null ? 0 : 1;
+                if (counted) perAlert[i] += bytes;
+            }
+        }
+        return summarise(path, perAlert, corpus, rounds);
+    }
+
+    /**
+     * Each alert posted live, one at a time, and what the capture thread
+     * allocated handling it. Its capture notification is withdrawn afterwards,
+     * as the web layer would, so the next round's copy is not collapsed as a
+     * repeat inside CAPTURE_NOTIFY_WINDOW_MS, and each round has fresh post
+     * times, so nothing is already secured: every round is the first time the
+     * phone has seen these alerts.
+     */
+    static Weight weighCapture(Context context, List<CaptureReplay.Alert> corpus, int rounds) throws Exception {
+        Handler main = new Handler(Looper.getMainLooper());
+        Thread captureThread = CaptureExecutor.call(Thread::currentThread);
+        long tid = captureThread.getId();
+        long barrier = barrierBytes(tid);
+
+        int[] posted = {0};
+        boolean[] notified = {false};
+        covault.shim.Device.observe(new covault.shim.Device.Observer() {
+            @Override
+            public void notified(int id, long startNanos, long endNanos) {
+                posted[0] = id;
+                notified[0] = true;
+            }
+
+            @Override
+            public void cancelled(String key, boolean removed, long endNanos) {}
+        });
+
+        long[] perAlert = new long[corpus.size()];
+        long postTime = System.currentTimeMillis();
+        for (int round = 0; round < rounds * 2; round++) {
+            boolean counted = round >= rounds;
+            NotificationListener listener = new NotificationListener();
+            onMain(main, listener::onCreate);
+            for (int i = 0; i < corpus.size(); i++) {
+                CaptureReplay.Alert alert = corpus.get(i);
+                StatusBarNotification sbn = new StatusBarNotification(alert.app, "0|" + alert.app + "|" + i,
+                    ++postTime, Notification.of("", alert.text, null), true);
+                CaptureExecutor.call(() -> null);
+                long before = THREADS.getThreadAllocatedBytes(tid);
+                onMain(main, () -> listener.onNotificationPosted(sbn));
+                CaptureExecutor.call(() -> null);
+                long bytes = THREADS.getThreadAllocatedBytes(tid) - before - barrier;
+                if (counted) perAlert[i] += Math.max(0, bytes);
+                if (notified[0]) NotificationListener.cancelCaptureNotification(context, posted[0]);
+                notified[0] = false;
+            }
+            onMain(main, listener::onDestroy);
+            // Keep the journal under MAX_PENDING, as the app opening would.
+            NotificationListener.drainPendingQueue(context);
+        }
+        return summarise(CAPTURE, perAlert, corpus, rounds);
+    }
+
+    /** What one empty round trip to the capture thread allocates there. */
+    private static long barrierBytes(long tid) throws Exception {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            CaptureExecutor.call(() -> null);
+            long before = THREADS.getThreadAllocatedBytes(tid);
+            CaptureExecutor.call(() -> null);
+            least = Math.min(least, THREADS.getThreadAllocatedBytes(tid) - before);
+        }
+        return least;
+    }
+
+    /** Run task on the stand-in main thread, as system_server would, and wait. */
+    private static void onMain(Handler main, Runnable task) throws InterruptedException {
+        java.util.concurrent.CountDownLatch done = new java.util.concurrent.CountDownLatch(1);
+        main.post(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+
+    private static Weight summarise(String path, long[] perAlert, List<CaptureReplay.Alert> corpus, int rounds) {
+        long total = 0;
+        int worst = 0;
+        for (int i = 0; i < perAlert.length; i++) {
+            total += perAlert[i];
+            if (perAlert[i] > perAlert[worst]) worst = i;
+        }
+        double mean = (double) total / ((long) rounds * perAlert.length);
+        return new Weight(path, mean, perAlert[worst] / rounds, corpus.get(worst).text);
+    }
+
+    // ── Budgets ──────────────────────────────────────────────────────────
+
+    static Map<String, Long> readBudgets(File file) throws IOException {
+        Map<String, Long> budgets = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] cells = line.split("\t");
+            if (cells.length < 2) throw new IOException("Not PATH<TAB>BYTES: " + line);
+            budgets.put(cells[0].trim(), Long.parseLong(cells[1].trim()));
+        }
+        return budgets;
+    }
+
+    /** @return how many paths are over budget, or have none when budgets were given. */
+    static int print(PrintStream out, List<Weight> weights, Map<String, Long> budgets, int alerts, int rounds) {
+        int over = 0;
+        out.println(String.format(Locale.US, "# %d alerts, %d rounds after %d warm-up", alerts, rounds, rounds));
+        out.println("# path\tbytes/alert\tbudget\tworst\tverdict\tworst alert");
+        for (Weight w : weights) {
+            String budget = "-";
+            String verdict = "-";
+            if (budgets != null) {
+                Long limit = budgets.get(w.path);
+                if (limit == null) {
+                    verdict = "NO BUDGET";
+                    over++;
+                } else {
+                    budget = Long.toString(limit);
+                    verdict = w.mean > limit ? "OVER" : "ok";
+                    if (w.mean > limit) over++;
+                }
+            }
+            String text = w.worstText.length() > 60 ? w.worstText.substring(0, 57) + "..." : w.worstText;
+            out.println(String.format(Locale.US, "%s\t%.0f\t%s\t%d\t%s\t%s", w.path, w.mean, budget, w.worst, verdict, text));
+        }
+        if (budgets != null) out.println("# " + over + " over budget or without one");
+        return over;
+    }
+
+    private static String read(String path) throws IOException {
+        if (path == null) return "[]";
+        return new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+    }
+}
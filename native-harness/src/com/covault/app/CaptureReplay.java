@@ -0,0 +1,255 @@
+package com.covault.app;
+
+import android.content.Context;
+
+import covault.shim.Device;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays a corpus of bank alerts through the listener's text logic, on a
+ * plain JVM, and says what it made of each one and what that cost.
+ *
+ * Every parser change so far has been judged on a handful of alerts in a
+ * unit test and then on whatever the phone in someone's pocket received that
+ * week. This is the step in between: the whole corpus, every alert read the
+ * way readCapture reads it, so a change can be compared with the tree before
+ * it on both counts — did any alert come out differently, and did it get
+ * slower.
+ *
+ * Two outputs. The results are one line per alert, deterministic, meant to be
+ * diffed against a previous run's. The timings are per function and for the
+ * whole read, in nanoseconds per alert and alerts per second, and vary from
+ * run to run the way timings do: compare them on the same machine.
+ *
+ * Usage (see scripts/native-harness.sh):
+ *
+ *   replay CORPUS.tsv [--rules RULES.json] [--recurring CHARGES.json]
+ *                     [--rounds N] [--results OUT.tsv]
+ *
+ * The corpus is one alert per line, source package and text separated by a
+ * tab; lines starting with # are skipped. The rules and charges are the JSON
+ * the web layer hands setSkipRules and setRecurringCharges.
+ */
+final class CaptureReplay {
+
+    private CaptureReplay() {}
+
+    static final class Alert {
+        final String app;
+        final String text;
+
+        Alert(String app, String text) {
+            this.app = app;
+            this.text = text;
+        }
+    }
+
+    /** What readCapture would decide about one alert. */
+    static final class Reading {
+        final Alert alert;
+        final Double amount;
+        final String vendor;
+        /** "scanner" when AlertTextScanner vouched for the text, "regex" when it declined. */
+        final String path;
+        final String outcome;
+
+        Reading(Alert alert, Double amount, String vendor, String path, String outcome) {
+            this.alert = alert;
+            this.amount = amount;
+            this.vendor = vendor;
+            this.path = path;
+            this.outcome = outcome;
+        }
+    }
+
+    /** What a capture that nothing quietened is reported as. */
+    static final String OUTCOME_ANNOUNCED = "announced";
+
+    public static void main(String[] args) throws Exception {
+        String corpusPath = null;
+        String rulesPath = null;
+        String recurringPath = null;
+        String resultsPath = null;
+        int rounds = 200;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rules": rulesPath = args[++i]; break;
+                case "--recurring": recurringPath = args[++i]; break;
+                case "--results": resultsPath = args[++i]; break;
+                case "--rounds": rounds = Integer.parseInt(args[++i]); break;
+                default: corpusPath = args[i];
+            }
+        }
+        if (corpusPath == null) {
+            System.err.println("usage: replay CORPUS.tsv [--rules RULES.json] [--recurring CHARGES.json] "
+                + "[--rounds N] [--results OUT.tsv]");
+            System.exit(2);
+        }
+
+        List<Alert> corpus = readCorpus(new File(corpusPath));
+        Context context = install(read(rulesPath, "[]"), read(recurringPath, "[]"));
+
+        List<Reading> readings = new ArrayList<>(corpus.size());
+        for (Alert alert : corpus) readings.add(readCapture(context, alert));
+        if (resultsPath == null) {
+            printResults(System.out, readings);
+        } else {
+            try (PrintStream out = new PrintStream(new File(resultsPath), "UTF-8")) {
+                printResults(out, readings);
+            }
+        }
+
+        printTimings(System.out, context, corpus, readings, rounds);
+    }
+
+    /**
+     * A fresh install with these rules and charges mirrored into it, through
+     * the same calls the plugin makes. Preferences are held in memory only.
+     */
+    static Context install(String rulesJson, String chargesJson) throws IOException {
+        File dir = Files.createTempDirectory("covault-replay").toFile();
+        dir.deleteOnExit();
+        Device.reset(dir, false);
+        Context context = new Context();
+        NotificationListener.saveSkipRules(context, rulesJson);
+        NotificationListener.saveRecurringCharges(context, chargesJson);
+        return context;
+    }
+
+    static List<Alert> readCorpus(File file) throws IOException {
+        List<Alert> corpus = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int tab = line.indexOf('\t');
+            if (tab <= 0) throw new IOException("Not PACKAGE<TAB>TEXT: " + line);
+            corpus.add(new Alert(line.substring(0, tab), line.substring(tab + 1)));
+        }
+        return corpus;
+    }
+
+    private static String read(String path, String fallback) throws IOException {
+        if (path == null) return fallback;
+        return new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The text half of readCapture and maybeHideBankNotification, in their
+     * order: amount and vendor, then the three quiet checks, then the amount
+     * gate. The extraction template cache is left out; it only replays what
+     * the scanner found the first time.
+     */
+    static Reading readCapture(Context context, Alert alert) {
+        String text = alert.text;
+        Double amount;
+        String vendor;
+        String path;
+        AlertTextScanner scanner = NotificationListener.SCANNER;
+        if (scanner.scan(text)) {
+            amount = scanner.hasAmount() ? scanner.amount() : null;
+            vendor = scanner.vendor();
+            path = "scanner";
+        } else {
+            amount = NotificationListener.extractAmount(text);
+            vendor = NotificationListener.extractVendor(text);
+            path = "regex";
+        }
+
+        boolean ignoredByUser = NotificationListener.matchesSkipRule(context, text);
+        boolean knownRecurring = !ignoredByUser && NotificationListener.matchesRecurringCharge(context, amount, text);
+        boolean notAPurchase = !ignoredByUser && !knownRecurring && NotificationListener.looksNonFinancial(text);
+
+        String outcome;
+        if (amount == null) {
+            outcome = NotificationListener.OUTCOME_NO_AMOUNT;
+        } else if (ignoredByUser) {
+            outcome = NotificationListener.OUTCOME_USER_IGNORED;
+        } else if (knownRecurring) {
+            outcome = NotificationListener.OUTCOME_KNOWN_RECURRING;
+        } else if (notAPurchase) {
+            outcome = NotificationListener.OUTCOME_NOT_A_PURCHASE;
+        } else {
+            outcome = OUTCOME_ANNOUNCED;
+        }
+        return new Reading(alert, amount, vendor, path, outcome);
+    }
+
+    static void printResults(PrintStream out, List<Reading> readings) {
+        out.println("# app\tamount\tvendor\tpath\toutcome\tshape\tdedup_key\ttext");
+        for (Reading r : readings) {
+            out.println(r.alert.app
+                + "\t" + (r.amount == null ? "-" : String.format(Locale.US, "%.2f", r.amount))
+                + "\t" + (r.vendor == null ? "-" : r.vendor)
+                + "\t" + r.path
+                + "\t" + r.outcome
+                + "\t" + NotificationListener.shapeOf(r.alert.text)
+                + "\t" + NotificationListener.captureDedupKey(r.amount, r.vendor, r.alert.text)
+                + "\t" + r.alert.text);
+        }
+    }
+
+    // ── Timings ──────────────────────────────────────────────────────────
+
+    /** One function under measurement, applied to one alert. */
+    interface Probe {
+        Object run(Context context, Alert alert, Reading reading);
+    }
+
+    /** The functions timed, in the order reported; CaptureAllocations weighs the same ones. */
+    static final String[] PROBE_NAMES = {
+        "readCapture", "scan", "extractAmount", "extractVendor", "stripEmoji",
+        "shapeOf", "looksNonFinancial", "matchesSkipRule", "matchesRecurringCharge",
+        "captureDedupKey",
+    };
+
+    static final Probe[] PROBES = {
+        (c, a, r) -> readCapture(c, a),
+        (c, a, r) -> NotificationListener.SCANNER.scan(a.text),
+        (c, a, r) -> NotificationListener.extractAmount(a.text),
+        (c, a, r) -> NotificationListener.extractVendor(a.text),
+        (c, a, r) -> NotificationListener.stripEmoji(a.text),
+        (c, a, r) -> NotificationListener.shapeOf(a.text),
+        (c, a, r) -> NotificationListener.looksNonFinancial(a.text),
+        (c, a, r) -> NotificationListener.matchesSkipRule(c, a.text),
+        (c, a, r) -> NotificationListener.matchesRecurringCharge(c, r.amount, a.text),
+        (c, a, r) -> NotificationListener.captureDedupKey(r.amount, r.vendor, a.text),
+    };
+
+    /** Read by nothing; keeps the JIT from proving a probe's work unused. */
+    static volatile int sink;
+
+    static void printTimings(PrintStream out, Context context, List<Alert> corpus,
+                             List<Reading> readings, int rounds) {
+        out.println();
+        out.println(String.format(Locale.US, "# %d alerts, %d rounds after %d warm-up", corpus.size(), rounds, rounds));
+        out.println("# function\tns/alert\talerts/sec");
+        for (int p = 0; p < PROBES.length; p++) {
+            measure(context, corpus, readings, PROBES[p], rounds);
+            long nanos = measure(context, corpus, readings, PROBES[p], rounds);
+            double perAlert = (double) nanos / ((long) rounds * corpus.size());
+            out.println(String.format(Locale.US, "%s\t%.0f\t%.0f", PROBE_NAMES[p], perAlert, 1e9 / perAlert));
+        }
+    }
+
+    private static long measure(Context context, List<Alert> corpus, List<Reading> readings,
+                                Probe probe, int rounds) {
+        int h = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < corpus.size(); i++) {
+                Object result = probe.run(context, corpus.get(i), readings.get(i));
+                h += result == null ? 0 : result.hashCode();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink = h;
+        return elapsed;
+    }
+}
@@ -0,0 +1,491 @@
+package com.covault.app;
+
+import android.app.Notification;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.service.notification.StatusBarNotification;
+
+import covault.shim.Device;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A notification storm, delivered to the real listener, with the time each
+ * alert took to be queued, announced and dismissed.
+ *
+ * Banks batch-send after an outage, and a reconnect hands the listener the
+ * whole shade again: dozens of posts inside a second, all funnelled through
+ * one capture thread. Each post waits behind the ones before it, so what the
+ * user sees is the tail, not the average CaptureTimings reports per stage.
+ *
+ * Posts arrive at the configured rate on the stand-in main thread, as
+ * system_server delivers them, and go through onNotificationPosted unchanged.
+ * Preferences are file-backed, the journal and secured set are the real
+ * files, and every Binder call the path makes costs what --notify-us,
+ * --cancel-us and --shade-us say. Each stage is timed from the post:
+ *
+ *   queued     the journal append returned: the notify that follows it, or
+ *              for a quiet capture the broadcast, which waits for the commit
+ *   notified   Covault's own notification is up
+ *   dismissed  the bank's alert was cancelled
+ *
+ * Usage (see scripts/native-harness.sh):
+ *
+ *   storm [--count N] [--rate PER_SEC] [--arrivals poisson|steady|burst]
+ *         [--mix bank=60,repeat=10,update=10,promo=10,other=10]
+ *         [--notify-us N] [--cancel-us N] [--shade-us N]
+ *         [--drain-ms N] [--no-hide] [--seed N]
+ *
+ * Kinds of post: bank, a new purchase alert; repeat, an earlier bank alert
+ * delivered again unchanged; update, an earlier bank alert replaced under the
+ * same key; promo, a bank's marketing that reads as no purchase; other, an
+ * app nobody monitors. Without --drain-ms the app is never opened, so the
+ * journal fills and MAX_PENDING starts dropping the oldest captures.
+ *
+ * After the storm the app is opened and drains the journal, and the listener
+ * then reconnects. Every dropped capture whose alert is still in the shade
+ * has to be queued again by that scan; the run exits 1 if one is not.
+ */
+final class StormSimulator {
+
+    private StormSimulator() {}
+
+    static final String[] KINDS = {"bank", "repeat", "update", "promo", "other"};
+
+    static final String[] BANKS = {"com.bmo.mobile", "com.td", "com.rbc.mobile.android", "com.cibc.android.mobi"};
+    static final String[] OTHERS = {"com.whatsapp", "com.google.android.gm", "com.spotify.music"};
+    static final String[] MERCHANTS = {
+        "TIM HORTONS", "LOBLAWS", "SHELL", "COSTCO WHOLESALE", "UBER EATS", "SHOPPERS DRUG MART", "IKEA",
+    };
+    static final String[] PROMOS = {
+        "Limited time: earn up to $150 when you open a new savings account",
+        "Use promo code SPRING for $25 off your next statement",
+        "New feature: set a $500 spending limit right from the app",
+    };
+
+    /** One delivery, and when each stage of capturing it happened. */
+    static final class Post {
+        final String kind;
+        final StatusBarNotification sbn;
+        long postedNanos;
+        long queuedNanos;
+        long notifiedNanos;
+        long dismissedNanos;
+
+        Post(String kind, StatusBarNotification sbn) {
+            this.kind = kind;
+            this.sbn = sbn;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = 500;
+        double rate = 50;
+        String arrivals = "poisson";
+        String mix = "bank=60,repeat=10,update=10,promo=10,other=10";
+        long notifyUs = 1000;
+        long cancelUs = 1000;
+        long shadeUs = 500;
+        long drainMs = 0;
+        boolean hide = true;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--count": count = Integer.parseInt(args[++i]); break;
+                case "--rate": rate = Double.parseDouble(args[++i]); break;
+                case "--arrivals": arrivals = args[++i]; break;
+                case "--mix": mix = args[++i]; break;
+                case "--notify-us": notifyUs = Long.parseLong(args[++i]); break;
+                case "--cancel-us": cancelUs = Long.parseLong(args[++i]); break;
+                case "--shade-us": shadeUs = Long.parseLong(args[++i]); break;
+                case "--drain-ms": drainMs = Long.parseLong(args[++i]); break;
+                case "--no-hide": hide = false; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("usage: storm [--count N] [--rate PER_SEC] [--arrivals poisson|steady|burst] "
+                        + "[--mix bank=60,repeat=10,update=10,promo=10,other=10] [--notify-us N] [--cancel-us N] "
+                        + "[--shade-us N] [--drain-ms N] [--no-hide] [--seed N]");
+                    System.exit(2);
+            }
+        }
+        if (!Arrays.asList("poisson", "steady", "burst").contains(arrivals)) {
+            throw new IllegalArgumentException("--arrivals is poisson, steady or burst: " + arrivals);
+        }
+
+        File dir = Files.createTempDirectory("covault-storm").toFile();
+        dir.deleteOnExit();
+        Device.reset(dir, true);
+        Device.notifyCostNanos = notifyUs * 1000;
+        Device.cancelCostNanos = cancelUs * 1000;
+        Device.shadeReadCostNanos = shadeUs * 1000;
+        Context context = new Context();
+        if (!hide) {
+            CovaultPrefs.config(context).edit()
+                .putBoolean(NotificationListener.HIDE_BANK_NOTIFICATIONS_KEY, false).commit();
+        }
+        WidgetDeltaStore.writeSnapshot(context, snapshot(System.currentTimeMillis()), "[]", false);
+
+        List<Post> posts = schedule(count, weights(mix), new Random(seed));
+        Tracker tracker = new Tracker();
+        Device.observe(tracker);
+        Device.onBroadcast(tracker::broadcast);
+
+        NotificationListener listener = new NotificationListener();
+        Handler main = new Handler(Looper.getMainLooper());
+        Looper capture = CaptureExecutor.call(Looper::myLooper);
+        main.post(() -> {
+            listener.onCreate();
+            listener.onListenerConnected();
+        });
+        awaitIdle(capture);
+
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        Thread app = drainEvery(context, delivered, drainMs);
+        Random gaps = new Random(seed ^ 0x5DEECE66DL);
+        long start = System.nanoTime();
+        long due = start;
+        for (Post post : posts) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) Device.binder(wait);
+            post.postedNanos = System.nanoTime();
+            tracker.expect(post);
+            Device.post(post.sbn);
+            main.post(() -> listener.onNotificationPosted(post.sbn));
+            due += gap(arrivals, rate, gaps);
+        }
+        long sent = System.nanoTime();
+
+        // Verification re-reads the shade in batches, DISMISS_VERIFY_DELAY_MS on;
+        // the capture looper holds those until they are due.
+        awaitIdle(capture);
+        if (app != null) {
+            app.interrupt();
+            app.join();
+        }
+        drain(context, delivered);
+
+        // A reconnect after the drain: what the cap dropped and the shade
+        // still shows must be read and queued again, not skipped as done.
+        Set<String> requeued = new HashSet<>();
+        main.post(listener::onListenerConnected);
+        awaitIdle(capture);
+        main.post(listener::onDestroy);
+        awaitIdle(capture);
+        drain(context, requeued);
+
+        int lost = report(System.out, posts, delivered, requeued, count, rate, arrivals, (sent - start) / 1e9);
+        if (lost > 0) {
+            System.err.println("# " + lost + " dropped captures still in the shade were not queued again by a rescan");
+        }
+        // The capture thread is not a daemon, as on a phone, and never quits.
+        System.exit(lost > 0 ? 1 : 0);
+    }
+
+    // ── Arrivals ─────────────────────────────────────────────────────────
+
+    static Map<String, Integer> weights(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2 || !Arrays.asList(KINDS).contains(kv[0])) {
+                throw new IllegalArgumentException("--mix is KIND=WEIGHT,... over " + Arrays.toString(KINDS) + ": " + part);
+            }
+            weights.put(kv[0], Integer.parseInt(kv[1]));
+        }
+        return weights;
+    }
+
+    /**
+     * The storm, decided up front so a seed always means the same storm.
+     * Post times are a millisecond apart: with the key they make the secured
+     * key, and two posts sharing one would be the same capture.
+     */
+    static List<Post> schedule(int count, Map<String, Integer> weights, Random random) {
+        int total = 0;
+        for (int w : weights.values()) total += w;
+        if (total <= 0) throw new IllegalArgumentException("--mix weights sum to zero");
+
+        List<Post> posts = new ArrayList<>(count);
+        List<StatusBarNotification> bankAlerts = new ArrayList<>();
+        long postTime = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            int pick = random.nextInt(total);
+            String kind = null;
+            for (Map.Entry<String, Integer> w : weights.entrySet()) {
+                pick -= w.getValue();
+                if (pick < 0) {
+                    kind = w.getKey();
+                    break;
+                }
+            }
+            if (("repeat".equals(kind) || "update".equals(kind)) && bankAlerts.isEmpty()) kind = "bank";
+            postTime++;
+
+            StatusBarNotification sbn;
+            switch (kind) {
+                case "repeat":
+                    sbn = bankAlerts.get(random.nextInt(bankAlerts.size()));
+                    break;
+                case "update": {
+                    StatusBarNotification earlier = bankAlerts.get(random.nextInt(bankAlerts.size()));
+                    sbn = new StatusBarNotification(earlier.getPackageName(), earlier.getKey(), postTime,
+                        purchase(i, random, "Posted: "), true);
+                    break;
+                }
+                case "promo": {
+                    String pkg = BANKS[random.nextInt(BANKS.length)];
+                    sbn = new StatusBarNotification(pkg, key(pkg, i), postTime,
+                        Notification.of("Offers", PROMOS[random.nextInt(PROMOS.length)], null), true);
+                    break;
+                }
+                case "other": {
+                    String pkg = OTHERS[random.nextInt(OTHERS.length)];
+                    sbn = new StatusBarNotification(pkg, key(pkg, i), postTime,
+                        Notification.of("Alex", "Dinner was $42, send me your half", null), true);
+                    break;
+                }
+                default: {
+                    String pkg = BANKS[random.nextInt(BANKS.length)];
+                    sbn = new StatusBarNotification(pkg, key(pkg, i), postTime, purchase(i, random, ""), true);
+                    bankAlerts.add(sbn);
+                }
+            }
+            posts.add(new Post(kind, sbn));
+        }
+        return posts;
+    }
+
+    /** Every amount different, so no two purchases collapse into one capture notification. */
+    private static Notification purchase(int i, Random random, String prefix) {
+        String amount = String.format(Locale.US, "$%d.%02d", 1 + random.nextInt(300), i % 100);
+        String merchant = MERCHANTS[random.nextInt(MERCHANTS.length)];
+        return Notification.of("Purchase alert", prefix + "You spent " + amount + " at " + merchant + " #" + i, null);
+    }
+
+    private static String key(String pkg, int i) {
+        return "0|" + pkg + "|" + i + "|null|10123";
+    }
+
+    private static long gap(String arrivals, double rate, Random random) {
+        if ("burst".equals(arrivals) || rate <= 0) return 0;
+        double mean = 1e9 / rate;
+        if ("steady".equals(arrivals)) return (long) mean;
+        return (long) (-Math.log(1 - random.nextDouble()) * mean);
+    }
+
+    // ── What happened ────────────────────────────────────────────────────
+
+    /**
+     * Ties what the listener did back to the post that caused it.
+     *
+     * Everything below runs on the capture thread, one post at a time, and for
+     * a live post the order is fixed: notify (unless quiet or collapsed), then
+     * the commit and the broadcast, then the dismissal. So the notify just before a broadcast
+     * is that broadcast's, and the broadcast names its post by package and
+     * post time. Dismissals name the key.
+     */
+    static final class Tracker implements Device.Observer {
+        private final Map<String, Deque<Post>> awaiting = new HashMap<>();
+        private final Map<String, Post> awaitingDismissal = new HashMap<>();
+        /** The latest post under each key, for a dismissal with no broadcast before it. */
+        private final Map<String, Post> latest = new HashMap<>();
+        private long notifyStart;
+        private long notifyEnd;
+
+        synchronized void expect(Post post) {
+            awaiting.computeIfAbsent(identity(post.sbn.getPackageName(), post.sbn.getPostTime()),
+                k -> new ArrayDeque<>()).add(post);
+            latest.put(post.sbn.getKey(), post);
+        }
+
+        @Override
+        public synchronized void notified(int id, long startNanos, long endNanos) {
+            notifyStart = startNanos;
+            notifyEnd = endNanos;
+        }
+
+        synchronized void broadcast(android.content.Intent intent) {
+            long now = System.nanoTime();
+            try {
+                JSONObject tx = new JSONObject(intent.getStringExtra("transaction_data"));
+                Deque<Post> waiting = awaiting.get(identity(tx.optString("source_app"), tx.optLong("timestamp")));
+                Post post = waiting == null ? null : waiting.poll();
+                if (post == null) return;
+                if (notifyEnd != 0) {
+                    post.queuedNanos = notifyStart;
+                    post.notifiedNanos = notifyEnd;
+                } else {
+                    post.queuedNanos = now;
+                }
+                notifyStart = 0;
+                notifyEnd = 0;
+                awaitingDismissal.put(post.sbn.getKey(), post);
+            } catch (Exception e) {
+                throw new IllegalStateException("Unreadable broadcast", e);
+            }
+        }
+
+        @Override
+        public synchronized void cancelled(String key, boolean removed, long endNanos) {
+            Post post = awaitingDismissal.remove(key);
+            // A repost already on record is only re-dismissed, never broadcast.
+            if (post == null) post = latest.get(key);
+            if (post != null && post.dismissedNanos == 0) post.dismissedNanos = endNanos;
+        }
+
+        private static String identity(String pkg, long postTime) {
+            return pkg + "|" + postTime;
+        }
+    }
+
+    /**
+     * The app open in the foreground, draining the journal every drainMs from
+     * its own thread as the plugin does. Null when it stays closed.
+     */
+    private static Thread drainEvery(Context context, Set<String> delivered, long drainMs) {
+        if (drainMs <= 0) return null;
+        Thread app = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(drainMs);
+                    drain(context, delivered);
+                }
+            } catch (Exception e) {
+                // Interrupted: the storm is over, and main drains what is left.
+                if (!Thread.currentThread().isInterrupted() && !(e instanceof InterruptedException)) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, "app");
+        app.setDaemon(true);
+        app.start();
+        return app;
+    }
+
+    /** What the web layer would take on opening the app, by capture. */
+    private static void drain(Context context, Set<String> delivered) throws Exception {
+        JSONArray drained = new JSONArray(NotificationListener.drainPendingQueue(context));
+        for (int i = 0; i < drained.length(); i++) {
+            JSONObject tx = drained.getJSONObject(i);
+            delivered.add(tx.optString("source_app") + "|" + tx.optLong("timestamp"));
+        }
+    }
+
+    private static void awaitIdle(Looper capture) throws InterruptedException {
+        Looper main = Looper.getMainLooper();
+        // Each can hand the other work: capture posts widget deltas to main,
+        // main posts captures to the capture thread. Settled is both at once.
+        do {
+            if (!main.awaitIdle(60_000) || !capture.awaitIdle(60_000)) {
+                throw new IllegalStateException("Capture did not settle within a minute");
+            }
+        } while (main.pending() > 0 || capture.pending() > 0);
+    }
+
+    /** @return how many dropped captures still in the shade the rescan did not queue again */
+    static int report(java.io.PrintStream out, List<Post> posts, Set<String> delivered, Set<String> requeued,
+                      int count, double rate, String arrivals, double seconds) {
+        Map<String, Integer> byKind = new LinkedHashMap<>();
+        for (String kind : KINDS) byKind.put(kind, 0);
+        Set<String> queued = new HashSet<>();
+        List<Long> toQueued = new ArrayList<>();
+        List<Long> toNotified = new ArrayList<>();
+        List<Long> toDismissed = new ArrayList<>();
+        for (Post p : posts) {
+            byKind.merge(p.kind, 1, Integer::sum);
+            if (p.queuedNanos != 0) {
+                toQueued.add(p.queuedNanos - p.postedNanos);
+                queued.add(p.sbn.getPackageName() + "|" + p.sbn.getPostTime());
+            }
+            if (p.notifiedNanos != 0) toNotified.add(p.notifiedNanos - p.postedNanos);
+            if (p.dismissedNanos != 0) toDismissed.add(p.dismissedNanos - p.postedNanos);
+        }
+        Set<String> dropped = new HashSet<>(queued);
+        dropped.removeAll(delivered);
+        Set<String> droppedInShade = new HashSet<>();
+        for (StatusBarNotification sbn : Device.active(null)) {
+            String identity = sbn.getPackageName() + "|" + sbn.getPostTime();
+            if (dropped.contains(identity)) droppedInShade.add(identity);
+        }
+        Set<String> recovered = new HashSet<>(droppedInShade);
+        recovered.retainAll(requeued);
+
+        out.println(String.format(Locale.US, "# %d posts in %.2f s: %s arrivals at %.0f/s requested, %.0f/s delivered",
+            count, seconds, arrivals, rate, seconds > 0 ? count / seconds : 0));
+        out.println("# kind\tposts");
+        for (Map.Entry<String, Integer> k : byKind.entrySet()) out.println(k.getKey() + "\t" + k.getValue());
+        out.println();
+        out.println("# stage\tn\tp50_ms\tp99_ms\tmax_ms");
+        printStage(out, "queued", toQueued);
+        printStage(out, "notified", toNotified);
+        printStage(out, "dismissed", toDismissed);
+        out.println();
+        out.println("# captures\tcount");
+        out.println("queued\t" + queued.size());
+        out.println("dropped_by_max_pending\t" + dropped.size());
+        out.println("dropped_still_in_shade\t" + droppedInShade.size());
+        out.println("requeued_by_rescan\t" + recovered.size());
+        out.println("bank_alerts_left_in_shade\t" + bankAlertsInShade());
+        out.println("capture_notifications_posted\t" + Device.notificationManager().posts());
+        out.println("shade_reads\t" + Device.shadeReads.get());
+        return droppedInShade.size() - recovered.size();
+    }
+
+    private static void printStage(java.io.PrintStream out, String stage, List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            out.println(stage + "\t0\t-\t-\t-");
+            return;
+        }
+        long[] sorted = new long[nanos.size()];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = nanos.get(i);
+        Arrays.sort(sorted);
+        out.println(String.format(Locale.US, "%s\t%d\t%.2f\t%.2f\t%.2f", stage, sorted.length,
+            percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6));
+    }
+
+    /** Nearest rank. */
+    static long percentile(long[] sorted, double q) {
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static int bankAlertsInShade() {
+        Set<String> banks = new HashSet<>(Arrays.asList(BANKS));
+        int left = 0;
+        for (StatusBarNotification sbn : Device.active(null)) {
+            if (banks.contains(sbn.getPackageName())) left++;
+        }
+        return left;
+    }
+
+    /** A widget snapshot for this month, so each capture's delta lands as it would on a phone. */
+    private static String snapshot(long updatedAtMs) throws Exception {
+        JSONObject snapshot = new JSONObject();
+        snapshot.put("monthKey", WidgetDeltaStore.monthKeyOf(updatedAtMs));
+        snapshot.put("monthLabel", "This month");
+        snapshot.put("totalSpent", 0.0);
+        snapshot.put("remaining", 2000.0);
+        snapshot.put("pendingReview", 0);
+        snapshot.put("updatedAtMs", updatedAtMs - 1);
+        snapshot.put("slices", new JSONArray());
+        return snapshot.toString();
+    }
+}
@@ -0,0 +1,122 @@
+#!/bin/bash
+# Run the native capture code on a plain JVM, with no phone and no Android SDK.
+#
+#   scripts/native-harness.sh replay native-harness/corpus/sample.tsv \
+#       --rules native-harness/corpus/sample-rules.json \
+#       --recurring native-harness/corpus/sample-recurring.json
+#   scripts/native-harness.sh storm --count 500 --rate 50
+#   scripts/native-harness.sh alloc native-harness/corpus/sample.tsv \
+#       --budgets native-harness/alloc-budgets.tsv
+#   scripts/native-harness.sh bench [JMH options...]
+#   scripts/native-harness.sh bench-compare BASE.csv NEW.csv [--threshold 0.10]
+#
+# Compiles the Android-free parts of android-custom/ against the stand-ins in
+# native-harness/shim, then runs the named harness. Needs only a JDK (17+);
+# bench also fetches JMH from Maven Central the first time it runs.
+# See native-harness/README.md.
+
+set -e
+
+SCRIPT_DIR="$(cd "$(dirname "$0")" && pwd)"
+PROJECT_DIR="$(dirname "$SCRIPT_DIR")"
+CUSTOM_DIR="$PROJECT_DIR/android-custom"
+HARNESS_DIR="$PROJECT_DIR/native-harness"
+OUT_DIR="$HARNESS_DIR/build/classes"
+LIB_DIR="$HARNESS_DIR/build/lib"
+
+# The capture path and what it reaches. The widget provider and renderer are
+# stood in for by native-harness/shim; everything else here is the real file.
+NATIVE_SOURCES=(
+  NotificationListener
+  AlertTextScanner
+  KeywordAutomaton
+  ExtractionTemplates
+  CaptureExecutor
+  CaptureJournal
+  FingerprintSet
+  RecentCaptures
+  CaptureEvents
+  CovaultPrefs
+  CaptureTimings
+  WidgetDeltaStore
+)
+
+declare -A MAINS=(
+  [replay]=com.covault.app.CaptureReplay
+  [storm]=com.covault.app.StormSimulator
+  [alloc]=com.covault.app.CaptureAllocations
+  [bench]=org.openjdk.jmh.Main
+  [bench-compare]=com.covault.app.BenchReport
+)
+
+# JMH and what it needs at run time, pinned. Fetched once into build/lib.
+MAVEN=https://repo1.maven.org/maven2
+JMH_VERSION=1.37
+JMH_JARS=(
+  "org/openjdk/jmh/jmh-core/$JMH_VERSION/jmh-core-$JMH_VERSION.jar"
+  "org/openjdk/jmh/jmh-generator-annprocess/$JMH_VERSION/jmh-generator-annprocess-$JMH_VERSION.jar"
+  "net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar"
+  "org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar"
+)
+
+if [ $# -lt 1 ] || [ -z "${MAINS[$1]}" ]; then
+  echo "Usage: $0 <${!MAINS[*]}> [args...]" | tr ' ' '|'
+  exit 2
+fi
+MODE="$1"
+MAIN="${MAINS[$1]}"
+shift
+
+rm -rf "$OUT_DIR"
+mkdir -p "$OUT_DIR"
+SOURCES=()
+for name in "${NATIVE_SOURCES[@]}"; do
+  SOURCES+=("$CUSTOM_DIR/$name.java")
+done
+SOURCE_DIRS=("$HARNESS_DIR/shim" "$HARNESS_DIR/src")
+CLASSPATH="$OUT_DIR"
+JAVAC_ARGS=()
+
+if [ "$MODE" = "bench" ]; then
+  mkdir -p "$LIB_DIR"
+  for path in "${JMH_JARS[@]}"; do
+    jar="$LIB_DIR/$(basename "$path")"
+    if [ ! -f "$jar" ]; then
+      echo "Fetching $(basename "$path")" >&2
+      if ! curl -fsSL --connect-timeout 15 -o "$jar.part" "$MAVEN/$path"; then
+        rm -f "$jar.part"
+        echo "Could not download $MAVEN/$path; bench needs network access the first time." >&2
+        exit 1
+      fi
+      mv "$jar.part" "$jar"
+    fi
+    CLASSPATH="$CLASSPATH:$jar"
+  done
+  SOURCE_DIRS+=("$HARNESS_DIR/bench")
+  # The annotation processor writes the generated benchmark classes and the
+  # META-INF/BenchmarkList that org.openjdk.jmh.Main reads.
+  JAVAC_ARGS+=(-cp "$CLASSPATH" -processor org.openjdk.jmh.generators.BenchmarkProcessor)
+  # Results land where bench-compare can find them, unless told otherwise.
+  set -- -rf csv -rff "$HARNESS_DIR/build/jmh.csv" "$@"
+fi
+
+while IFS= read -r -d '' file; do
+  SOURCES+=("$file")
+done < <(find "${SOURCE_DIRS[@]}" -name '*.java' -print0)
+
+javac -encoding UTF-8 -nowarn "${JAVAC_ARGS[@]}" -d "$OUT_DIR" "${SOURCES[@]}"
+
+if [ "$MODE" = "bench" ]; then
+  java -Dfile.encoding=UTF-8 -cp "$CLASSPATH" "$MAIN" "$@"
+  exec java -cp "$OUT_DIR" com.covault.app.BenchReport report "$HARNESS_DIR/build/jmh.csv"
+fi
+if [ "$MODE" = "bench-compare" ]; then
+  set -- compare "$@"
+fi
+JAVA_ARGS=()
+if [ "$MODE" = "alloc" ]; then
+  # C2 would otherwise scalar-replace short-lived objects that ART allocates,
+  # and the budgets would hold the desktop to a standard the phone can't meet.
+  JAVA_ARGS+=(-XX:-DoEscapeAnalysis)
+fi
+exec java "${JAVA_ARGS[@]}" -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -cp "$CLASSPATH" "$MAIN" "$@"
@@ -151,6 +151,16 @@ cp -v "$CUSTOM_DIR/MainActivity.java" "$JAVA_DIR/"
 cp -v "$CUSTOM_DIR/CovaultNotificationPlugin.java" "$JAVA_DIR/"
 cp -v "$CUSTOM_DIR/CovaultUpdaterPlugin.java" "$JAVA_DIR/"
 cp -v "$CUSTOM_DIR/NotificationListener.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/AlertTextScanner.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/KeywordAutomaton.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/ExtractionTemplates.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/CaptureExecutor.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/CaptureJournal.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/FingerprintSet.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/RecentCaptures.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/CaptureEvents.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/CovaultPrefs.java" "$JAVA_DIR/"
+cp -v "$CUSTOM_DIR/CaptureTimings.java" "$JAVA_DIR/"
 cp -v "$CUSTOM_DIR/BootReceiver.java" "$JAVA_DIR/"
 cp -v "$CUSTOM_DIR/CovaultWidgetProvider.java" "$JAVA_DIR/"
 cp -v "$CUSTOM_DIR/WidgetRenderer.java" "$JAVA_DIR/"